@@ -0,0 +1,290 @@
+/*
+ * Copyright © 2017-2025 重庆骄智科技有限公司.
+ * 本软件根据 Apache License 2.0 开源，详见 LICENSE 文件。
+ */
+package com.joyzl.database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 熔断器，数据库连接连续失败时快速失败
+ * <p>
+ * 新建连接连续失败达到阈值时熔断器打开，此后获取连接立即抛出 {@link UnavailableException}，
+ * 不再等待网络连接超时；打开期间由后台线程按退避时间探测数据库，探测成功后熔断器关闭恢复正常。
+ * 每个连接池具有独立的熔断器，参考 {@link Pool#getBreaker()}。
+ * </p>
+ *
+ * <pre>
+ * <code>
+ * Database.getPool().getBreaker().addListener((pool, from, to) -&gt; {
+ *     System.err.println(pool.getURL() + " " + from + " -&gt; " + to);
+ * });
+ * </code>
+ * </pre>
+ */
+public final class Breaker {
+
+	/**
+	 * 熔断器状态
+	 */
+	public enum State {
+		/** 关闭，正常获取连接 */
+		CLOSED,
+		/** 打开，快速失败并等待探测 */
+		OPEN,
+		/** 正在探测数据库 */
+		PROBING
+	}
+
+	/**
+	 * 熔断器状态变化监听
+	 */
+	public interface Listener {
+		/**
+		 * 熔断器状态变化，在状态变化的线程中调用，不应执行耗时操作
+		 *
+		 * @param pool 连接池
+		 * @param from 原状态
+		 * @param to 新状态
+		 */
+		void changed(Pool pool, State from, State to);
+	}
+
+	private final Pool pool;
+	private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+	// 连续失败次数阈值
+	private volatile int threshold = 5;
+	// 首次探测等待时间(毫秒)
+	private volatile long backoff = 1000;
+	// 最长探测等待时间(毫秒)
+	private volatile long maximum = 60 * 1000;
+
+	private volatile State state = State.CLOSED;
+	private int failures;
+	private long delay;
+	private ScheduledFuture<?> probe;
+	private boolean destroyed;
+
+	// 统计
+	private final AtomicLong trips = new AtomicLong();
+	private final AtomicLong rejected = new AtomicLong();
+
+	Breaker(Pool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * 检查是否允许获取连接，熔断器打开时计数并返回 false
+	 */
+	final boolean allow() {
+		if (state == State.CLOSED) {
+			return true;
+		}
+		rejected.incrementAndGet();
+		return false;
+	}
+
+	/**
+	 * 新建连接成功
+	 */
+	final void success() {
+		synchronized (this) {
+			failures = 0;
+		}
+	}
+
+	/**
+	 * 新建连接失败，连续失败达到阈值时打开熔断器
+	 */
+	final void failure() {
+		synchronized (this) {
+			if (state != State.CLOSED || destroyed) {
+				return;
+			}
+			if (++failures < threshold) {
+				return;
+			}
+			state = State.OPEN;
+			delay = backoff;
+			trips.incrementAndGet();
+			schedule();
+		}
+		fire(State.CLOSED, State.OPEN);
+	}
+
+	private void schedule() {
+		probe = Database.scheduler().schedule(this::probe, delay, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * 后台探测，同一时间只有一个探测
+	 */
+	private void probe() {
+		synchronized (this) {
+			if (state != State.OPEN || destroyed) {
+				return;
+			}
+			state = State.PROBING;
+		}
+		fire(State.OPEN, State.PROBING);
+
+		Connection connection;
+		try {
+			connection = pool.connect();
+			if (!pool.dialect.validate(connection, 1)) {
+				connection.close();
+				connection = null;
+			}
+		} catch (SQLException e) {
+			connection = null;
+		}
+
+		if (connection != null) {
+			// 探测成功的连接放入连接队列
+			pool.offer(connection);
+			synchronized (this) {
+				state = State.CLOSED;
+				failures = 0;
+				probe = null;
+				notifyAll();
+			}
+			fire(State.PROBING, State.CLOSED);
+		} else {
+			synchronized (this) {
+				if (destroyed) {
+					return;
+				}
+				state = State.OPEN;
+				delay = Math.min(delay * 2, maximum);
+				schedule();
+			}
+			fire(State.PROBING, State.OPEN);
+		}
+	}
+
+	private void fire(State from, State to) {
+		for (Listener listener : listeners) {
+			try {
+				listener.changed(pool, from, to);
+			} catch (RuntimeException e) {
+				// 忽略监听错误
+			}
+		}
+	}
+
+	/**
+	 * 等待熔断器关闭，由 {@link Database#checkWait()} 使用
+	 *
+	 * @return true 熔断器已关闭 / false 连接池已销毁
+	 */
+	final synchronized boolean await() {
+		while (state != State.CLOSED && !destroyed) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			}
+		}
+		return !destroyed;
+	}
+
+	/**
+	 * 熔断器打开之前等待重试，由 {@link Database#checkWait()} 使用；
+	 * 等待时间按连续失败次数从100毫秒起倍增，不超过首次探测等待时间
+	 *
+	 * @return true 可以重试 / false 连接池已销毁
+	 */
+	final synchronized boolean pause() {
+		if (destroyed) {
+			return false;
+		}
+		try {
+			wait(Math.min(backoff, 100L << Math.min(failures, 10)));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+		return !destroyed;
+	}
+
+	/**
+	 * 停止探测，唤醒所有等待线程
+	 */
+	final synchronized void destroy() {
+		destroyed = true;
+		if (probe != null) {
+			probe.cancel(false);
+			probe = null;
+		}
+		notifyAll();
+	}
+
+	/**
+	 * 设置熔断参数
+	 *
+	 * @param threshold 打开熔断器的连续失败次数
+	 * @param backoff 首次探测等待时间(毫秒)，此后每次探测失败等待时间加倍
+	 * @param maximum 最长探测等待时间(毫秒)
+	 */
+	public void setThreshold(int threshold, long backoff, long maximum) {
+		if (threshold < 1) {
+			throw new IllegalArgumentException("连续失败次数必须大于0:" + threshold);
+		}
+		if (backoff < 1 || maximum < backoff) {
+			throw new IllegalArgumentException("探测等待时间无效:" + backoff + "/" + maximum);
+		}
+		this.threshold = threshold;
+		this.backoff = backoff;
+		this.maximum = maximum;
+	}
+
+	/**
+	 * 添加状态变化监听
+	 */
+	public void addListener(Listener listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * 移除状态变化监听
+	 */
+	public void removeListener(Listener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * 获取熔断器状态
+	 */
+	public State getState() {
+		return state;
+	}
+
+	/**
+	 * 获取当前连续失败次数
+	 */
+	public synchronized int getFailures() {
+		return failures;
+	}
+
+	/**
+	 * 获取累计打开熔断器的次数
+	 */
+	public long getTrips() {
+		return trips.get();
+	}
+
+	/**
+	 * 获取累计快速失败的次数
+	 */
+	public long getRejected() {
+		return rejected.get();
+	}
+}
@@ -8,9 +8,19 @@ import java.sql.Connection;
 import java.sql.Driver;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.Enumeration;
+import java.util.List;
 import java.util.Queue;
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 数据库操作，对JDBC接口进行封装<br>
@@ -121,14 +131,20 @@ public final class Database {
 	public final static int ORACLE = 2;
 
 	private static int TYPE;
-	// 数据库用户名
-	private static String USERNAME = "";
-	// 数据库用户密码
-	private static String PASSWORD = "";
-	// 数据库连接字符串
-	private static String CONNECTION_STRING = "";
-	// 数据库连接队列
-	static Queue<Connection> CONNECTIONS;
+	// 数据库连接池
+	static Pool POOL;
+	// 分片，销毁时关闭各分片连接池
+	static final Queue<Sharding> SHARDINGS = new ConcurrentLinkedQueue<>();
+	// 定时任务线程，只用于计时，不执行数据库操作
+	private static ScheduledThreadPoolExecutor SCHEDULER;
+	// 后台数据库操作线程，用于合并查询、批量写入和在所有分片执行，耗时的语句不会延迟熔断探测和自适应调节
+	private static ThreadPoolExecutor EXECUTOR;
+	// 合并写入对象，销毁时写入队列中的记录
+	static final Queue<Writer> WRITERS = new ConcurrentLinkedQueue<>();
+	// 自适应调节，未启用时为 null
+	static volatile Tuner TUNER;
+	// 拦截器链，没有拦截器时为 null，变更时替换整个数组
+	static volatile Interceptor[] INTERCEPTORS;
 
 	/**
 	 * 初始化数据库驱动
@@ -141,28 +157,7 @@ public final class Database {
 	 */
 	public static void initialize(int type, String url, String user, String password, int maximum) {
 		TYPE = type;
-		USERNAME = user;
-		PASSWORD = password;
-		CONNECTION_STRING = url;
-		CONNECTIONS = new ArrayBlockingQueue<>(maximum);
-
-		try {
-			switch (type) {
-				case MYSQL:
-					// Class.forName("com.mysql.jdbc.Driver");
-					// MySQL 采用了新的包名称
-					Class.forName("com.mysql.cj.jdbc.Driver");
-					break;
-				case ORACLE:
-					// jdbc:oracle:thin:@myhost:1521/myorcldbservicename
-					Class.forName("oracle.jdbc.driver.OracleDriver");
-					break;
-				default:
-					throw new IllegalArgumentException("不支持的数据库类型 " + type);
-			}
-		} catch (ClassNotFoundException ex) {
-			throw new RuntimeException("mysql Deiver not found", ex);
-		}
+		POOL = new Pool(dialect(type, url), url, user, password, maximum);
 
 		// JNDI
 		// Context ctx = new InitialContext();
@@ -172,48 +167,137 @@ public final class Database {
 	}
 
 	/**
-	 * 检查数据库链路是否正常，此方法柱塞当前线程直至数据库连接恢复
+	 * 初始化数据库驱动，根据连接字符串选择数据库方言 {@link Dialect}<br>
+	 * 方言可能附加连接字符串中未指定的性能参数，参考 {@link Dialect#url(String)}
+	 *
+	 * @param url 数据库URL
+	 * @param user 数据库访问用户
+	 * @param password 数据库访问密码
+	 * @param maximum 最大连接数
 	 */
-	public final static void checkWait() {
-		if (CONNECTIONS == null || CONNECTIONS.isEmpty()) {
-			while (true) {
-				try {
-					Connection connection = getConnection();
-					if (connection.isValid(10)) {
-						if (CONNECTIONS.offer(connection)) {
-							// OK
-						} else {
-							connection.close();
-						}
-						return;
-					} else {
-						connection.close();
-					}
-				} catch (Exception e) {
-					System.err.println("数据库无法连接，等待重试:" + e.getMessage());
-					try {
-						Thread.sleep(10 * 1000);
-					} catch (InterruptedException e1) {
-						// 忽略此异常
+	public static void initialize(String url, String user, String password, int maximum) {
+		final Dialect dialect = find(url);
+		if (dialect == null) {
+			throw new IllegalArgumentException("未找到支持此连接字符串的数据库方言 " + url);
+		}
+		POOL = new Pool(load(dialect), url, user, password, maximum);
+	}
+
+	/**
+	 * 选择数据库方言，优先根据连接字符串选择，未找到时根据数据库类型选择
+	 */
+	private static Dialect dialect(int type, String url) {
+		final Dialect dialect = find(url);
+		if (dialect != null) {
+			return load(dialect);
+		}
+		switch (type) {
+			case MYSQL:
+				return load(new MySQLDialect());
+			case ORACLE:
+				return load(new OracleDialect());
+			default:
+				throw new IllegalArgumentException("不支持的数据库类型 " + type);
+		}
+	}
+
+	/**
+	 * 通过 ServiceLoader 查找支持连接字符串的数据库方言
+	 */
+	private static Dialect find(String url) {
+		for (Dialect dialect : ServiceLoader.load(Dialect.class, Dialect.class.getClassLoader())) {
+			if (dialect.accept(url)) {
+				return dialect;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * 加载数据库方言指定的驱动
+	 */
+	private static Dialect load(Dialect dialect) {
+		if (dialect.driver() != null) {
+			try {
+				final Class<?> clazz = Class.forName(dialect.driver());
+				// destory() 注销驱动后再次初始化时，已加载的驱动类不会再次注册
+				final Enumeration<Driver> drivers = DriverManager.getDrivers();
+				while (drivers.hasMoreElements()) {
+					if (drivers.nextElement().getClass() == clazz) {
+						return dialect;
 					}
 				}
+				DriverManager.registerDriver((Driver) clazz.getDeclaredConstructor().newInstance());
+			} catch (ClassNotFoundException ex) {
+				throw new RuntimeException(dialect.name() + " Driver not found", ex);
+			} catch (ReflectiveOperationException | SQLException ex) {
+				throw new RuntimeException(dialect.name() + " Driver register failed", ex);
 			}
-		} else {
-			int size = CONNECTIONS.size();
-			while (size-- > 0) {
-				try {
-					Connection connection = CONNECTIONS.poll();
-					if (connection.isValid(1)) {
-						CONNECTIONS.offer(connection);
-					} else {
-						connection.close();
-					}
-				} catch (SQLException e) {
-					// 忽略错误
+		}
+		return dialect;
+	}
+
+	/**
+	 * 初始化分片，每个分片具有独立的连接池<br>
+	 * 通过 {@link Sharding#instance(String)} 实例化的数据访问对象，按分片键参数值选择分片；
+	 * 无分片键参数的查询在所有分片并行执行并合并结果集
+	 *
+	 * @param type {@link #MYSQL}/{@link #ORACLE}
+	 * @param key 分片键参数名
+	 * @param strategy 分片策略 {@link Sharding#hash()}/{@link Sharding#range(long...)}
+	 * @param urls 每个分片的数据库URL
+	 * @param user 数据库访问用户
+	 * @param password 数据库访问密码
+	 * @param maximum 每个分片的最大连接数
+	 * @return Sharding 实例
+	 */
+	public static Sharding sharding(int type, String key, Sharding.Strategy strategy, String[] urls, String user, String password, int maximum) {
+		final Pool[] pools = new Pool[urls.length];
+		for (int index = 0; index < urls.length; index++) {
+			pools[index] = new Pool(dialect(type, urls[index]), urls[index], user, password, maximum);
+		}
+		final Sharding sharding = new Sharding(key, strategy, pools);
+		SHARDINGS.offer(sharding);
+		return sharding;
+	}
+
+	/**
+	 * 检查数据库链路是否正常，此方法柱塞当前线程直至数据库连接恢复<br>
+	 * 连接失败时按退避时间重试，熔断器打开后由熔断器在后台探测，当前线程等待熔断器关闭，
+	 * 连接状态变化可通过熔断器监听获得，参考 {@link Breaker}
+	 */
+	public final static void checkWait() {
+		final Pool pool = POOL;
+		final Queue<Connection> connections = pool.connections;
+		int size = connections.size();
+		while (size-- > 0) {
+			try {
+				Connection connection = connections.poll();
+				if (connection == null) {
+					break;
+				}
+				if (pool.dialect.validate(connection, 1)) {
+					connections.offer(connection);
+				} else {
+					connection.close();
 				}
+			} catch (SQLException e) {
+				// 忽略错误
 			}
-			if (CONNECTIONS.isEmpty()) {
-				checkWait();
+		}
+		while (connections.isEmpty()) {
+			try {
+				pool.release(pool.getConnection());
+				return;
+			} catch (UnavailableException e) {
+				if (!pool.getBreaker().await()) {
+					throw e;
+				}
+			} catch (SQLException e) {
+				// 失败由熔断器计数，达到阈值后熔断器打开
+				if (!pool.getBreaker().pause()) {
+					throw new RuntimeException(e);
+				}
 			}
 		}
 	}
@@ -222,6 +306,15 @@ public final class Database {
 	 * 销毁数据库及所有缓存连接
 	 */
 	public final static void destory() {
+		Writer writer;
+		while ((writer = WRITERS.peek()) != null) {
+			writer.close();
+		}
+		if (TUNER != null) {
+			TUNER.stop();
+			TUNER = null;
+		}
+
 		final Enumeration<Driver> drivers = DriverManager.getDrivers();
 		while (drivers.hasMoreElements()) {
 			try {
@@ -232,16 +325,22 @@ public final class Database {
 			}
 		}
 
-		if (CONNECTIONS == null || CONNECTIONS.isEmpty()) {
-			// EMPTY
-		} else {
-			Connection connection;
-			while ((connection = CONNECTIONS.poll()) != null) {
-				try {
-					connection.close();
-				} catch (SQLException e) {
-					// 忽略错误
-				}
+		if (POOL != null) {
+			POOL.destroy();
+		}
+		Sharding sharding;
+		while ((sharding = SHARDINGS.poll()) != null) {
+			sharding.destroy();
+		}
+
+		synchronized (Database.class) {
+			if (SCHEDULER != null) {
+				SCHEDULER.shutdown();
+				SCHEDULER = null;
+			}
+			if (EXECUTOR != null) {
+				EXECUTOR.shutdown();
+				EXECUTOR = null;
 			}
 		}
 
@@ -258,7 +357,7 @@ public final class Database {
 	 * @return 是否初始化
 	 */
 	public static boolean isInitialized() {
-		return CONNECTIONS != null;
+		return POOL != null;
 	}
 
 	////////////////////////////////////////////////////////////////////////////////
@@ -270,24 +369,158 @@ public final class Database {
 	 * @throws SQLException
 	 */
 	static Connection getConnection() throws SQLException {
-		if (CONNECTIONS.isEmpty()) {
-			return DriverManager.getConnection(CONNECTION_STRING, USERNAME, PASSWORD);
+		return POOL.getConnection();
+	}
+
+	/**
+	 * 获取数据库连接池，用于查看连接使用情况
+	 *
+	 * @return Pool / null 未初始化
+	 */
+	public static Pool getPool() {
+		return POOL;
+	}
+
+	/**
+	 * 获取数据库方言
+	 *
+	 * @return Dialect / null 未初始化
+	 */
+	public static Dialect getDialect() {
+		return POOL == null ? null : POOL.dialect;
+	}
+
+	/**
+	 * 启用自适应调节，根据运行时负载调节结果集读取数量和连接池空闲连接上限，参考 {@link Tuner}<br>
+	 * 空闲连接上限在 minimum 与初始化指定的最大连接数之间调节
+	 *
+	 * @param minimum 最小空闲连接上限
+	 * @return Tuner 实例，重复调用将替换之前的实例
+	 */
+	public static synchronized Tuner tuner(int minimum) {
+		if (TUNER != null) {
+			TUNER.stop();
+		}
+		return TUNER = new Tuner(POOL, minimum);
+	}
+
+	/**
+	 * 获取自适应调节
+	 *
+	 * @return Tuner / null 未启用
+	 */
+	public static Tuner getTuner() {
+		return TUNER;
+	}
+
+	/**
+	 * 添加执行拦截器到拦截器链末尾，参考 {@link Interceptor}<br>
+	 * 只影响此后获取连接的 {@link Statement} 实例
+	 *
+	 * @param interceptor 拦截器
+	 */
+	public static synchronized void addInterceptor(Interceptor interceptor) {
+		if (interceptor == null) {
+			throw new NullPointerException("interceptor");
+		}
+		final Interceptor[] chain = INTERCEPTORS;
+		if (chain == null) {
+			INTERCEPTORS = new Interceptor[] { interceptor };
 		} else {
-			Connection connection = CONNECTIONS.poll();
-			if (connection == null) {
-				return getConnection();
-			} else {
-				if (connection.isValid(1)) {
-					// isValid(8) 提交一个查询到数据库验证连接是否有效
-					// 最长等待 8秒
-					// 8秒过长,等待一秒即可
-					return connection;
-				} else {
-					connection.close();
-					return getConnection();
+			final Interceptor[] added = Arrays.copyOf(chain, chain.length + 1);
+			added[chain.length] = interceptor;
+			INTERCEPTORS = added;
+		}
+	}
+
+	/**
+	 * 从拦截器链移除执行拦截器
+	 *
+	 * @param interceptor 拦截器
+	 * @return true 已移除 / false 未注册
+	 */
+	public static synchronized boolean removeInterceptor(Interceptor interceptor) {
+		final Interceptor[] chain = INTERCEPTORS;
+		if (chain != null) {
+			for (int index = 0; index < chain.length; index++) {
+				if (chain[index] == interceptor) {
+					if (chain.length == 1) {
+						// 保持为 null 以便执行时只需一次判断
+						INTERCEPTORS = null;
+					} else {
+						final Interceptor[] removed = new Interceptor[chain.length - 1];
+						System.arraycopy(chain, 0, removed, 0, index);
+						System.arraycopy(chain, index + 1, removed, index, chain.length - index - 1);
+						INTERCEPTORS = removed;
+					}
+					return true;
 				}
 			}
 		}
+		return false;
+	}
+
+	/**
+	 * 获取已注册的执行拦截器，按调用顺序
+	 *
+	 * @return {@code List<Interceptor>} 只读
+	 */
+	public static List<Interceptor> getInterceptors() {
+		final Interceptor[] chain = INTERCEPTORS;
+		return chain == null ? List.of() : List.of(chain);
+	}
+
+	/**
+	 * 获取定时任务线程，首次使用时创建，{@link #destory()} 时关闭
+	 *
+	 * @return ScheduledExecutorService
+	 */
+	static synchronized ScheduledExecutorService scheduler() {
+		if (SCHEDULER == null) {
+			final AtomicInteger count = new AtomicInteger();
+			SCHEDULER = new ScheduledThreadPoolExecutor(Runtime.getRuntime().availableProcessors(), runnable -> {
+				final Thread thread = new Thread(runnable, "database-scheduler-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+			SCHEDULER.setRemoveOnCancelPolicy(true);
+		}
+		return SCHEDULER;
+	}
+
+	/**
+	 * 获取后台数据库操作线程，线程数量有限，空闲时线程退出，首次使用时创建，{@link #destory()} 时关闭
+	 *
+	 * @return ExecutorService
+	 */
+	static synchronized ExecutorService executor() {
+		if (EXECUTOR == null) {
+			final int threads = Runtime.getRuntime().availableProcessors() * 2;
+			final AtomicInteger count = new AtomicInteger();
+			EXECUTOR = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+				final Thread thread = new Worker(runnable, "database-executor-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+			EXECUTOR.allowCoreThreadTimeOut(true);
+		}
+		return EXECUTOR;
+	}
+
+	/**
+	 * 当前线程是否为后台数据库操作线程
+	 */
+	static boolean isWorker() {
+		return Thread.currentThread() instanceof Worker;
+	}
+
+	/**
+	 * 后台数据库操作线程
+	 */
+	private static final class Worker extends Thread {
+		Worker(Runnable runnable, String name) {
+			super(runnable, name);
+		}
 	}
 
 	/**
@@ -302,6 +535,16 @@ public final class Database {
 		return new Statement(sql, false);
 	}
 
+	/**
+	 * 实例化数据访问对象，使用已分析的命名参数SQL，例如注解处理器生成的预编译实例 {@link SQL}
+	 *
+	 * @param sql 命名参数SQL
+	 * @return Statement 实例
+	 */
+	public static Statement instance(NamedSQL sql) {
+		return new Statement(sql, false);
+	}
+
 	/**
 	 * 实例化数据访问对象<br>
 	 * {@code SELECT * FROM `users` WHERE `id`=?id}<br>
@@ -329,4 +572,74 @@ public final class Database {
 	public static Statement instance(String sql, Statement statement) {
 		return new Statement(sql, statement);
 	}
+
+	/**
+	 * 实例化查看执行计划的数据访问对象，SQL语句由数据库方言转换 {@link Dialect#explain(String)}，参数设置与原语句相同<br>
+	 * Oracle 执行计划写入 PLAN_TABLE，需通过 DBMS_XPLAN.DISPLAY 查看
+	 *
+	 * @param sql 命名参数SQL语句
+	 * @return Statement 实例
+	 */
+	public static Statement explain(String sql) {
+		return new Statement(POOL.dialect.explain(sql), false);
+	}
+
+	/**
+	 * 实例化合并主键查询对象，将短时间内多个线程请求的单条记录查询合并为一次 IN 查询<br>
+	 * {@code SELECT * FROM `users` WHERE `id` IN (?ids)}<br>
+	 * {@code loader.load(1);}<br>
+	 * 默认单次查询最多100个主键，时间窗口2毫秒
+	 *
+	 * @param sql 命名参数SQL语句，主键参数位于 IN (...) 中
+	 * @param key 主键参数名
+	 * @param column 结果集中的主键字段名
+	 * @param clazz 记录映射类型
+	 * @return Loader 实例
+	 */
+	public static <T> Loader<T> loader(String sql, String key, String column, Class<T> clazz) {
+		return new Loader<>(sql, key, column, clazz, 100, 2);
+	}
+
+	/**
+	 * 实例化合并主键查询对象，将短时间内多个线程请求的单条记录查询合并为一次 IN 查询
+	 *
+	 * @param sql 命名参数SQL语句，主键参数位于 IN (...) 中
+	 * @param key 主键参数名
+	 * @param column 结果集中的主键字段名
+	 * @param clazz 记录映射类型
+	 * @param maximum 单次查询的最大主键数量
+	 * @param window 收集主键的时间窗口(毫秒)
+	 * @return Loader 实例
+	 */
+	public static <T> Loader<T> loader(String sql, String key, String column, Class<T> clazz, int maximum, long window) {
+		return new Loader<>(sql, key, column, clazz, maximum, window);
+	}
+
+	/**
+	 * 实例化合并写入对象，将多个线程提交的单条记录写入合并为批处理<br>
+	 * {@code INSERT INTO `events` (`type`,`content`) VALUES (?type,?content)}<br>
+	 * {@code writer.write(event);}<br>
+	 * 默认批处理最多100条记录，等待合并最长10毫秒，队列容量10000
+	 *
+	 * @param sql 命名参数SQL语句
+	 * @return Writer 实例
+	 */
+	public static Writer writer(String sql) {
+		return writer(sql, 100, 10, 10000);
+	}
+
+	/**
+	 * 实例化合并写入对象，将多个线程提交的单条记录写入合并为批处理
+	 *
+	 * @param sql 命名参数SQL语句
+	 * @param maximum 单次批处理的最大记录数量
+	 * @param linger 等待合并的最长时间(毫秒)
+	 * @param capacity 队列容量，队列满时提交线程将等待
+	 * @return Writer 实例
+	 */
+	public static Writer writer(String sql, int maximum, long linger, int capacity) {
+		final Writer writer = new Writer(sql, maximum, linger, capacity);
+		WRITERS.offer(writer);
+		return writer;
+	}
 }
@@ -0,0 +1,106 @@
+/*
+ * Copyright © 2017-2025 重庆骄智科技有限公司.
+ * 本软件根据 Apache License 2.0 开源，详见 LICENSE 文件。
+ */
+package com.joyzl.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+
+/**
+ * 数据库方言，封装不同数据库的差异
+ * <p>
+ * 方言通过 {@link java.util.ServiceLoader} 发现，{@link Database#initialize(String, String, String, int)}
+ * 根据连接字符串选择方言；内置 {@link MySQLDialect} {@link OracleDialect} {@link H2Dialect}，
+ * 其它数据库可实现此接口并在 module-info.java 中声明 {@code provides com.joyzl.database.Dialect with ...}
+ * 或在 META-INF/services/com.joyzl.database.Dialect 中注册。
+ * </p>
+ */
+public interface Dialect {
+
+	/**
+	 * 方言名称
+	 */
+	String name();
+
+	/**
+	 * 是否支持指定的数据库连接字符串
+	 *
+	 * @param url 数据库连接字符串
+	 */
+	boolean accept(String url);
+
+	/**
+	 * 数据库驱动类名，返回 null 时由 DriverManager 自动发现驱动
+	 */
+	default String driver() {
+		return null;
+	}
+
+	/**
+	 * 调整数据库连接字符串，附加提升性能的连接参数；连接字符串中已指定的参数不应改变
+	 *
+	 * @param url 数据库连接字符串
+	 * @return 调整后的连接字符串
+	 */
+	default String url(String url) {
+		return url;
+	}
+
+	/**
+	 * 预编译SQL语句，由方言决定是否获取自动生成的主键
+	 *
+	 * @param connection 数据库连接
+	 * @param sql 可执行SQL语句，可能已被 {@link Interceptor#prepare(NamedSQL, String)} 修改
+	 * @param command SQL命令，参考 {@link NamedSQL#getSQLCommand()}
+	 * @return PreparedStatement
+	 */
+	default PreparedStatement prepare(Connection connection, String sql, String command) throws SQLException {
+		return connection.prepareStatement(sql, java.sql.Statement.RETURN_GENERATED_KEYS);
+	}
+
+	/**
+	 * 设置以流方式读取结果集，参考 {@link Statement#streaming()}
+	 *
+	 * @param statement 未执行的 PreparedStatement
+	 */
+	default void streaming(java.sql.Statement statement) throws SQLException {
+		statement.setFetchSize(1000);
+	}
+
+	/**
+	 * 验证连接是否有效
+	 *
+	 * @param connection 数据库连接
+	 * @param timeout 超时秒数
+	 */
+	default boolean validate(Connection connection, int timeout) throws SQLException {
+		return connection.isValid(timeout);
+	}
+
+	/**
+	 * 获取执行计划的SQL语句，参考 {@link Database#explain(String)}
+	 *
+	 * @param sql 命名参数SQL语句
+	 */
+	default String explain(String sql) {
+		return "EXPLAIN " + sql;
+	}
+
+	/**
+	 * 指示异常是否为事务已回滚且可安全重试的错误，仅限死锁、锁等待超时和序列化失败；
+	 * 连接中断时无法确定事务是否已提交，不应判定为可重试。{@link Writer} 据此重试提交前失败的批处理
+	 *
+	 * @param e 数据库异常
+	 */
+	default boolean retryable(SQLException e) {
+		if (e instanceof SQLTransactionRollbackException) {
+			return true;
+		}
+		final String state = e.getSQLState();
+		// 40001 序列化失败 40P01 死锁
+		return "40001".equals(state) || "40P01".equals(state);
+	}
+}
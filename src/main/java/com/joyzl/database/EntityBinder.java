@@ -0,0 +1,404 @@
+/*
+ * Copyright © 2017-2025 重庆骄智科技有限公司.
+ * 本软件根据 Apache License 2.0 开源，详见 LICENSE 文件。
+ */
+package com.joyzl.database;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.RecordComponent;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 对象到SQL命名参数的绑定器
+ * <p>
+ * 支持 Java record 和 JavaBean(公开getXxx/isXxx方法)，参数名与属性名忽略大小写和下划线匹配，
+ * 例如参数 ?created_at 匹配属性 createdAt；没有匹配属性的参数不会被设置，可通过 setValue 单独设置。
+ * 集合(Collection / int[] / long[])属性按 {@link Statement#setValue(String, Collection)} 展开，在其它属性之前设置。
+ * </p>
+ * <p>
+ * 绑定器按(类型,NamedSQL)生成一次并缓存，由 MethodHandle 组合而成，基本类型属性以基本类型方法设置，
+ * 绑定过程不产生装箱，也没有逐条记录的反射调用。
+ * </p>
+ */
+final class EntityBinder {
+
+	// 静态集合缓存生成过的绑定器，按类型和NamedSQL区分
+	private final static Map<Class<?>, Map<NamedSQL, EntityBinder>> BINDER_CACHES = new ConcurrentHashMap<>();
+	private final static MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+	/**
+	 * 获取绑定器实例，此方法将缓存生成过的绑定器以提高性能
+	 *
+	 * @param clazz 实体类型
+	 * @param namedsql 命名参数SQL
+	 * @return EntityBinder
+	 */
+	static EntityBinder get(Class<?> clazz, NamedSQL namedsql) {
+		final Map<NamedSQL, EntityBinder> binders = BINDER_CACHES.computeIfAbsent(clazz, k -> new ConcurrentHashMap<>());
+		EntityBinder binder = binders.get(namedsql);
+		if (binder == null) {
+			binder = new EntityBinder(clazz, namedsql);
+			binders.put(namedsql, binder);
+		}
+		return binder;
+	}
+
+	////////////////////////////////////////////////////////////////////////////////
+
+	private final Class<?> clazz;
+	// (PreparedStatement,Object)void
+	private final MethodHandle[] handles;
+	// 参数位置、参数名和读取方法 (Object)Object，用于提供参数值给拦截器和分片语句
+	private final int[] indexes;
+	private final String[] names;
+	private final MethodHandle[] readers;
+	// 集合属性的参数名和读取方法 (Object)Object，每个参数名一项
+	private final String[] collections;
+	private final MethodHandle[] expanders;
+
+	private EntityBinder(Class<?> clazz, NamedSQL namedsql) {
+		this.clazz = clazz;
+
+		// 属性名 -> 读取方法
+		final Map<String, Method> getters = new HashMap<>();
+		if (clazz.isRecord()) {
+			for (RecordComponent component : clazz.getRecordComponents()) {
+				getters.put(EntityMapper.normalize(component.getName()), component.getAccessor());
+			}
+		} else {
+			for (Method method : clazz.getMethods()) {
+				if (Modifier.isStatic(method.getModifiers()) || method.getParameterCount() != 0 || method.getDeclaringClass() == Object.class) {
+					continue;
+				}
+				if (method.getName().length() > 3 && method.getName().startsWith("get")) {
+					getters.putIfAbsent(EntityMapper.normalize(method.getName().substring(3)), method);
+				} else if (method.getName().length() > 2 && method.getName().startsWith("is") && method.getReturnType() == boolean.class) {
+					getters.putIfAbsent(EntityMapper.normalize(method.getName().substring(2)), method);
+				}
+			}
+		}
+
+		final List<MethodHandle> list = new ArrayList<>(namedsql.names.length);
+		final List<MethodHandle> accessors = new ArrayList<>(namedsql.names.length);
+		final int[] positions = new int[namedsql.names.length];
+		final List<String> collection_names = new ArrayList<>();
+		final List<MethodHandle> collection_readers = new ArrayList<>();
+		try {
+			for (int index = 0; index < namedsql.names.length; index++) {
+				final Method getter = getters.get(EntityMapper.normalize(namedsql.names[index]));
+				if (getter == null) {
+					continue;
+				}
+				getter.trySetAccessible();
+				// (T)P -> (Object)P
+				MethodHandle g = LOOKUP.unreflect(getter);
+				g = g.asType(MethodType.methodType(getter.getReturnType(), Object.class));
+				if (isCollection(getter.getReturnType())) {
+					// 展开后的变体语句中集合参数有多个占位符，只记录一次
+					if (!collection_names.contains(namedsql.names[index])) {
+						collection_names.add(namedsql.names[index]);
+						collection_readers.add(g.asType(MethodType.methodType(Object.class, Object.class)));
+					}
+					continue;
+				}
+				// (PreparedStatement,P)void -> (PreparedStatement,Object)void
+				list.add(MethodHandles.filterArguments(writer(getter.getReturnType(), index + 1), 1, g));
+				positions[accessors.size()] = index;
+				accessors.add(g.asType(MethodType.methodType(Object.class, Object.class)));
+			}
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalArgumentException("无法绑定的类型 " + clazz.getName(), e);
+		}
+		handles = list.toArray(new MethodHandle[list.size()]);
+		readers = accessors.toArray(new MethodHandle[accessors.size()]);
+		indexes = Arrays.copyOf(positions, readers.length);
+		names = new String[indexes.length];
+		for (int index = 0; index < indexes.length; index++) {
+			names[index] = namedsql.names[indexes[index]];
+		}
+		collections = collection_names.toArray(new String[collection_names.size()]);
+		expanders = collection_readers.toArray(new MethodHandle[collection_readers.size()]);
+	}
+
+	private static boolean isCollection(Class<?> type) {
+		return Collection.class.isAssignableFrom(type) || type == int[].class || type == long[].class;
+	}
+
+	/**
+	 * 是否具有集合属性，需要在绑定其它属性之前调用 {@link #expand(Statement, Object)}
+	 */
+	final boolean expands() {
+		return collections.length > 0;
+	}
+
+	/**
+	 * 设置集合属性值，参数按元素数量展开，语句可能被替换为展开的变体，
+	 * 此后应按 {@link Statement} 当前的 NamedSQL 获取绑定器设置其它属性
+	 *
+	 * @param statement 数据库操作对象
+	 * @param entity 实体对象
+	 */
+	final void expand(Statement statement, Object entity) {
+		Object value;
+		for (int index = 0; index < expanders.length; index++) {
+			try {
+				value = expanders[index].invokeExact(entity);
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new RuntimeException(e);
+			}
+			if (value == null) {
+				statement.setValue(collections[index], Collections.emptyList());
+			} else if (value instanceof int[]) {
+				statement.setValue(collections[index], (int[]) value);
+			} else if (value instanceof long[]) {
+				statement.setValue(collections[index], (long[]) value);
+			} else {
+				statement.setValue(collections[index], (Collection<?>) value);
+			}
+		}
+	}
+
+	/**
+	 * 将对象属性值设置到SQL参数
+	 *
+	 * @param statement JDBC PreparedStatement
+	 * @param entity 实体对象
+	 */
+	final void bind(PreparedStatement statement, Object entity) {
+		try {
+			for (int index = 0; index < handles.length; index++) {
+				handles[index].invokeExact(statement, entity);
+			}
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * 读取对象属性值到参数数组，按参数位置
+	 *
+	 * @param entity 实体对象
+	 * @param parameters 参数数组
+	 */
+	final void values(Object entity, Object[] parameters) {
+		try {
+			for (int index = 0; index < readers.length; index++) {
+				parameters[indexes[index]] = readers[index].invokeExact(entity);
+			}
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * 逐个参数设置对象属性值，用于分片语句；分片键参数最先设置以选择分片，然后设置集合属性和其它属性
+	 *
+	 * @param statement 分片数据库操作对象
+	 * @param entity 实体对象
+	 * @param key 分片键参数名
+	 */
+	final void route(Statement statement, Object entity, String key) {
+		final Object[] values = new Object[readers.length];
+		try {
+			for (int index = 0; index < readers.length; index++) {
+				values[index] = readers[index].invokeExact(entity);
+			}
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new RuntimeException(e);
+		}
+		for (int index = 0; index < names.length; index++) {
+			if (names[index].equals(key)) {
+				statement.setParameter(key, values[index]);
+				break;
+			}
+		}
+		expand(statement, entity);
+		for (int index = 0; index < names.length; index++) {
+			if (!names[index].equals(key)) {
+				statement.setParameter(names[index], values[index]);
+			}
+		}
+	}
+
+	/**
+	 * 获取绑定的实体类型
+	 */
+	final Class<?> type() {
+		return clazz;
+	}
+
+	/**
+	 * 按类型获取参数设置器 (PreparedStatement,P)void，基本类型直接调用PreparedStatement的基本类型方法
+	 */
+	private static MethodHandle writer(Class<?> type, int parameter) throws ReflectiveOperationException {
+		final MethodHandle h;
+		if (type == int.class) {
+			h = LOOKUP.findVirtual(PreparedStatement.class, "setInt", MethodType.methodType(void.class, int.class, int.class));
+		} else if (type == long.class) {
+			h = LOOKUP.findVirtual(PreparedStatement.class, "setLong", MethodType.methodType(void.class, int.class, long.class));
+		} else if (type == boolean.class) {
+			h = LOOKUP.findVirtual(PreparedStatement.class, "setBoolean", MethodType.methodType(void.class, int.class, boolean.class));
+		} else if (type == short.class) {
+			h = LOOKUP.findVirtual(PreparedStatement.class, "setShort", MethodType.methodType(void.class, int.class, short.class));
+		} else if (type == byte.class) {
+			h = LOOKUP.findVirtual(PreparedStatement.class, "setByte", MethodType.methodType(void.class, int.class, byte.class));
+		} else if (type == float.class) {
+			h = LOOKUP.findVirtual(PreparedStatement.class, "setFloat", MethodType.methodType(void.class, int.class, float.class));
+		} else if (type == double.class) {
+			h = LOOKUP.findVirtual(PreparedStatement.class, "setDouble", MethodType.methodType(void.class, int.class, double.class));
+		} else if (type == Integer.class || type == Long.class || type == Boolean.class || type == Short.class || type == Byte.class || type == Float.class || type == Double.class || type == String.class || type == BigDecimal.class || type == LocalTime.class || type == LocalDate.class || type == LocalDateTime.class) {
+			h = LOOKUP.findStatic(EntityBinder.class, "set" + type.getSimpleName(), MethodType.methodType(void.class, PreparedStatement.class, int.class, type));
+		} else if (type == byte[].class) {
+			h = LOOKUP.findStatic(EntityBinder.class, "setBytes", MethodType.methodType(void.class, PreparedStatement.class, int.class, byte[].class));
+		} else if (type == java.util.Date.class) {
+			h = LOOKUP.findStatic(EntityBinder.class, "setDate", MethodType.methodType(void.class, PreparedStatement.class, int.class, java.util.Date.class));
+		} else {
+			h = LOOKUP.findVirtual(PreparedStatement.class, "setObject", MethodType.methodType(void.class, int.class, Object.class)).asType(MethodType.methodType(void.class, PreparedStatement.class, int.class, type));
+		}
+		return MethodHandles.insertArguments(h, 1, parameter);
+	}
+
+	////////////////////////////////////////////////////////////////////////////////
+	// 对象类型设置，值为null时设置为数据库NULL
+
+	static void setInteger(PreparedStatement statement, int parameter, Integer value) throws SQLException {
+		if (value == null) {
+			statement.setNull(parameter, Types.INTEGER);
+		} else {
+			statement.setInt(parameter, value);
+		}
+	}
+
+	static void setLong(PreparedStatement statement, int parameter, Long value) throws SQLException {
+		if (value == null) {
+			statement.setNull(parameter, Types.BIGINT);
+		} else {
+			statement.setLong(parameter, value);
+		}
+	}
+
+	static void setBoolean(PreparedStatement statement, int parameter, Boolean value) throws SQLException {
+		if (value == null) {
+			statement.setNull(parameter, Types.BOOLEAN);
+		} else {
+			statement.setBoolean(parameter, value);
+		}
+	}
+
+	static void setShort(PreparedStatement statement, int parameter, Short value) throws SQLException {
+		if (value == null) {
+			statement.setNull(parameter, Types.SMALLINT);
+		} else {
+			statement.setShort(parameter, value);
+		}
+	}
+
+	static void setByte(PreparedStatement statement, int parameter, Byte value) throws SQLException {
+		if (value == null) {
+			statement.setNull(parameter, Types.TINYINT);
+		} else {
+			statement.setByte(parameter, value);
+		}
+	}
+
+	static void setFloat(PreparedStatement statement, int parameter, Float value) throws SQLException {
+		if (value == null) {
+			statement.setNull(parameter, Types.FLOAT);
+		} else {
+			statement.setFloat(parameter, value);
+		}
+	}
+
+	static void setDouble(PreparedStatement statement, int parameter, Double value) throws SQLException {
+		if (value == null) {
+			statement.setNull(parameter, Types.DOUBLE);
+		} else {
+			statement.setDouble(parameter, value);
+		}
+	}
+
+	static void setString(PreparedStatement statement, int parameter, String value) throws SQLException {
+		if (value == null) {
+			statement.setNull(parameter, Types.VARCHAR);
+		} else {
+			statement.setString(parameter, value);
+		}
+	}
+
+	static void setBigDecimal(PreparedStatement statement, int parameter, BigDecimal value) throws SQLException {
+		if (value == null) {
+			statement.setNull(parameter, Types.DECIMAL);
+		} else {
+			statement.setBigDecimal(parameter, value);
+		}
+	}
+
+	static void setBytes(PreparedStatement statement, int parameter, byte[] value) throws SQLException {
+		if (value == null) {
+			statement.setNull(parameter, Types.VARBINARY);
+		} else {
+			statement.setBytes(parameter, value);
+		}
+	}
+
+	static void setDate(PreparedStatement statement, int parameter, java.util.Date value) throws SQLException {
+		if (value == null) {
+			statement.setNull(parameter, Types.DATE);
+		} else {
+			statement.setDate(parameter, new Date(value.getTime()));
+		}
+	}
+
+	static void setLocalTime(PreparedStatement statement, int parameter, LocalTime value) throws SQLException {
+		if (value == null) {
+			statement.setNull(parameter, Types.TIME);
+		} else {
+			statement.setTime(parameter, Time.valueOf(value));
+		}
+	}
+
+	static void setLocalDate(PreparedStatement statement, int parameter, LocalDate value) throws SQLException {
+		if (value == null) {
+			statement.setNull(parameter, Types.DATE);
+		} else {
+			statement.setDate(parameter, Date.valueOf(value));
+		}
+	}
+
+	static void setLocalDateTime(PreparedStatement statement, int parameter, LocalDateTime value) throws SQLException {
+		if (value == null) {
+			statement.setNull(parameter, Types.TIMESTAMP);
+		} else {
+			statement.setTimestamp(parameter, Timestamp.valueOf(value));
+		}
+	}
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright © 2017-2025 重庆骄智科技有限公司.
+ * 本软件根据 Apache License 2.0 开源，详见 LICENSE 文件。
+ */
+package com.joyzl.database;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.RecordComponent;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 记录到对象的映射器
+ * <p>
+ * 支持 Java record 和 JavaBean(公开无参构造+setXxx方法)，字段名与属性名忽略大小写和下划线匹配，
+ * 例如字段 created_at 匹配属性 createdAt；未匹配的字段被忽略，未匹配的属性保持默认值。
+ * </p>
+ * <p>
+ * 映射器按(类型,结果集字段布局)生成一次并缓存，由 MethodHandle 组合而成，按字段索引以基本类型读取，
+ * 读取过程不产生装箱；字段值为null时基本类型属性为0/false，对象类型属性为null。
+ * </p>
+ */
+final class EntityMapper<T> {
+
+	// 静态集合缓存生成过的映射器，按类型和字段布局区分
+	private final static Map<Class<?>, Map<String, EntityMapper<?>>> MAPPER_CACHES = new ConcurrentHashMap<>();
+	private final static MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+	/**
+	 * 获取映射器实例，此方法将缓存生成过的映射器以提高性能
+	 *
+	 * @param clazz 映射目标类型
+	 * @param meta 结果集元数据
+	 * @return EntityMapper
+	 */
+	@SuppressWarnings("unchecked")
+	static <T> EntityMapper<T> get(Class<T> clazz, ResultSetMetaData meta) throws SQLException {
+		final String[] labels = new String[meta.getColumnCount()];
+		final StringBuilder layout = new StringBuilder();
+		for (int index = 0; index < labels.length; index++) {
+			labels[index] = meta.getColumnLabel(index + 1);
+			layout.append(labels[index]).append(',');
+		}
+
+		final Map<String, EntityMapper<?>> mappers = MAPPER_CACHES.computeIfAbsent(clazz, k -> new ConcurrentHashMap<>());
+		final String key = layout.toString();
+		EntityMapper<?> mapper = mappers.get(key);
+		if (mapper == null) {
+			mapper = new EntityMapper<>(clazz, labels);
+			mappers.put(key, mapper);
+		}
+		return (EntityMapper<T>) mapper;
+	}
+
+	////////////////////////////////////////////////////////////////////////////////
+
+	private final Class<T> clazz;
+	// (ResultSet)Object
+	private final MethodHandle handle;
+
+	private EntityMapper(Class<T> clazz, String[] labels) {
+		this.clazz = clazz;
+
+		// 字段名 -> 字段索引(1~n)
+		final Map<String, Integer> columns = new HashMap<>();
+		for (int index = 0; index < labels.length; index++) {
+			columns.putIfAbsent(normalize(labels[index]), index + 1);
+		}
+
+		try {
+			MethodHandle h;
+			if (clazz.isRecord()) {
+				h = record(clazz, columns);
+			} else {
+				h = bean(clazz, columns);
+			}
+			handle = h.asType(MethodType.methodType(Object.class, ResultSet.class));
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalArgumentException("无法映射的类型 " + clazz.getName(), e);
+		}
+	}
+
+	/**
+	 * 将结果集当前记录映射为对象
+	 *
+	 * @param result 已定位到记录的结果集
+	 * @return T
+	 */
+	final T map(ResultSet result) {
+		try {
+			return clazz.cast((Object) handle.invokeExact(result));
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * 组合 record 的规范构造方法，每个组件对应一个字段读取器
+	 */
+	private static MethodHandle record(Class<?> clazz, Map<String, Integer> columns) throws ReflectiveOperationException {
+		final RecordComponent[] components = clazz.getRecordComponents();
+		final Class<?>[] types = new Class<?>[components.length];
+		for (int index = 0; index < components.length; index++) {
+			types[index] = components[index].getType();
+		}
+		final Constructor<?> constructor = clazz.getDeclaredConstructor(types);
+		constructor.trySetAccessible();
+
+		// (p1,p2...pn)T
+		MethodHandle h = LOOKUP.unreflectConstructor(constructor);
+		final MethodHandle[] readers = new MethodHandle[components.length];
+		for (int index = 0; index < components.length; index++) {
+			final Integer column = columns.get(normalize(components[index].getName()));
+			if (column == null) {
+				readers[index] = MethodHandles.dropArguments(MethodHandles.zero(types[index]), 0, ResultSet.class);
+			} else {
+				readers[index] = reader(types[index], column);
+			}
+		}
+		// (ResultSet,ResultSet...ResultSet)T
+		h = MethodHandles.filterArguments(h, 0, readers);
+		// (ResultSet)T
+		return MethodHandles.permuteArguments(h, MethodType.methodType(clazz, ResultSet.class), new int[components.length]);
+	}
+
+	/**
+	 * 组合 JavaBean 的无参构造方法和 setXxx 方法，每个方法对应一个字段读取器
+	 */
+	private static MethodHandle bean(Class<?> clazz, Map<String, Integer> columns) throws ReflectiveOperationException {
+		final Constructor<?> constructor = clazz.getDeclaredConstructor();
+		constructor.trySetAccessible();
+
+		// (T,ResultSet)T
+		MethodHandle h = MethodHandles.dropArguments(MethodHandles.identity(clazz), 1, ResultSet.class);
+		// 同名重载的setXxx方法只取第一个
+		final Set<Integer> mapped = new HashSet<>();
+		for (Method method : clazz.getMethods()) {
+			if (Modifier.isStatic(method.getModifiers())) {
+				continue;
+			}
+			if (method.getParameterCount() != 1 || method.getName().length() <= 3 || !method.getName().startsWith("set")) {
+				continue;
+			}
+			final Integer column = columns.get(normalize(method.getName().substring(3)));
+			if (column == null || !mapped.add(column)) {
+				continue;
+			}
+			method.trySetAccessible();
+			// (T,P)void -> (T,ResultSet)void
+			MethodHandle setter = LOOKUP.unreflect(method);
+			setter = setter.asType(setter.type().changeParameterType(0, clazz).changeReturnType(void.class));
+			setter = MethodHandles.filterArguments(setter, 1, reader(method.getParameterTypes()[0], column));
+			// 先执行setter再返回T
+			h = MethodHandles.foldArguments(h, setter);
+		}
+		// (ResultSet)T
+		final MethodHandle create = MethodHandles.dropArguments(LOOKUP.unreflectConstructor(constructor), 0, ResultSet.class);
+		return MethodHandles.foldArguments(h, create);
+	}
+
+	/**
+	 * 按类型获取字段读取器 (ResultSet)P，基本类型直接调用ResultSet的基本类型方法
+	 */
+	private static MethodHandle reader(Class<?> type, int column) throws ReflectiveOperationException {
+		final MethodHandle h;
+		if (type == int.class) {
+			h = LOOKUP.findVirtual(ResultSet.class, "getInt", MethodType.methodType(int.class, int.class));
+		} else if (type == long.class) {
+			h = LOOKUP.findVirtual(ResultSet.class, "getLong", MethodType.methodType(long.class, int.class));
+		} else if (type == boolean.class) {
+			h = LOOKUP.findVirtual(ResultSet.class, "getBoolean", MethodType.methodType(boolean.class, int.class));
+		} else if (type == short.class) {
+			h = LOOKUP.findVirtual(ResultSet.class, "getShort", MethodType.methodType(short.class, int.class));
+		} else if (type == byte.class) {
+			h = LOOKUP.findVirtual(ResultSet.class, "getByte", MethodType.methodType(byte.class, int.class));
+		} else if (type == float.class) {
+			h = LOOKUP.findVirtual(ResultSet.class, "getFloat", MethodType.methodType(float.class, int.class));
+		} else if (type == double.class) {
+			h = LOOKUP.findVirtual(ResultSet.class, "getDouble", MethodType.methodType(double.class, int.class));
+		} else if (type == String.class) {
+			h = LOOKUP.findVirtual(ResultSet.class, "getString", MethodType.methodType(String.class, int.class));
+		} else if (type == byte[].class) {
+			h = LOOKUP.findVirtual(ResultSet.class, "getBytes", MethodType.methodType(byte[].class, int.class));
+		} else if (type == BigDecimal.class) {
+			h = LOOKUP.findVirtual(ResultSet.class, "getBigDecimal", MethodType.methodType(BigDecimal.class, int.class));
+		} else if (type == java.util.Date.class) {
+			h = LOOKUP.findVirtual(ResultSet.class, "getDate", MethodType.methodType(Date.class, int.class));
+		} else if (type == Integer.class || type == Long.class || type == Boolean.class || type == Short.class || type == Byte.class || type == Float.class || type == Double.class || type == LocalTime.class || type == LocalDate.class || type == LocalDateTime.class) {
+			h = LOOKUP.findStatic(EntityMapper.class, "get" + type.getSimpleName(), MethodType.methodType(type, ResultSet.class, int.class));
+		} else {
+			h = MethodHandles.insertArguments(LOOKUP.findVirtual(ResultSet.class, "getObject", MethodType.methodType(Object.class, int.class, Class.class)), 2, type);
+		}
+		return MethodHandles.insertArguments(h, 1, column).asType(MethodType.methodType(type, ResultSet.class));
+	}
+
+	/**
+	 * 字段名/参数名和属性名的匹配形式：小写并移除下划线
+	 */
+	static String normalize(String name) {
+		final StringBuilder builder = new StringBuilder(name.length());
+		char c;
+		for (int index = 0; index < name.length(); index++) {
+			c = name.charAt(index);
+			if (c != '_') {
+				builder.append(Character.toLowerCase(c));
+			}
+		}
+		return builder.toString();
+	}
+
+	////////////////////////////////////////////////////////////////////////////////
+	// 对象类型读取，数据库返回null时返回null
+
+	static Integer getInteger(ResultSet result, int column) throws SQLException {
+		final int value = result.getInt(column);
+		return result.wasNull() ? null : value;
+	}
+
+	static Long getLong(ResultSet result, int column) throws SQLException {
+		final long value = result.getLong(column);
+		return result.wasNull() ? null : value;
+	}
+
+	static Boolean getBoolean(ResultSet result, int column) throws SQLException {
+		final boolean value = result.getBoolean(column);
+		return result.wasNull() ? null : value;
+	}
+
+	static Short getShort(ResultSet result, int column) throws SQLException {
+		final short value = result.getShort(column);
+		return result.wasNull() ? null : value;
+	}
+
+	static Byte getByte(ResultSet result, int column) throws SQLException {
+		final byte value = result.getByte(column);
+		return result.wasNull() ? null : value;
+	}
+
+	static Float getFloat(ResultSet result, int column) throws SQLException {
+		final float value = result.getFloat(column);
+		return result.wasNull() ? null : value;
+	}
+
+	static Double getDouble(ResultSet result, int column) throws SQLException {
+		final double value = result.getDouble(column);
+		return result.wasNull() ? null : value;
+	}
+
+	static LocalTime getLocalTime(ResultSet result, int column) throws SQLException {
+		final Time value = result.getTime(column);
+		return value == null ? null : value.toLocalTime();
+	}
+
+	static LocalDate getLocalDate(ResultSet result, int column) throws SQLException {
+		final Date value = result.getDate(column);
+		return value == null ? null : value.toLocalDate();
+	}
+
+	static LocalDateTime getLocalDateTime(ResultSet result, int column) throws SQLException {
+		final Timestamp value = result.getTimestamp(column);
+		return value == null ? null : value.toLocalDateTime();
+	}
+}
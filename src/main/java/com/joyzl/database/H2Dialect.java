@@ -0,0 +1,45 @@
+/*
+ * Copyright © 2017-2025 重庆骄智科技有限公司.
+ * 本软件根据 Apache License 2.0 开源，详见 LICENSE 文件。
+ */
+package com.joyzl.database;
+
+import java.sql.SQLException;
+
+/**
+ * H2 方言，可用于进程内数据库测试
+ */
+public final class H2Dialect implements Dialect {
+
+	/**
+	 * 创建 H2 方言，通常由 {@link java.util.ServiceLoader} 创建
+	 */
+	public H2Dialect() {
+	}
+
+	@Override
+	public String name() {
+		return "h2";
+	}
+
+	@Override
+	public boolean accept(String url) {
+		return url.startsWith("jdbc:h2:");
+	}
+
+	@Override
+	public String driver() {
+		return "org.h2.Driver";
+	}
+
+	@Override
+	public boolean retryable(SQLException e) {
+		switch (e.getErrorCode()) {
+			case 40001: // 死锁
+			case 50200: // 锁等待超时
+				return true;
+			default:
+				return Dialect.super.retryable(e);
+		}
+	}
+}
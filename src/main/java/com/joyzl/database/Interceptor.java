@@ -0,0 +1,119 @@
+/*
+ * Copyright © 2017-2025 重庆骄智科技有限公司.
+ * 本软件根据 Apache License 2.0 开源，详见 LICENSE 文件。
+ */
+package com.joyzl.database;
+
+/**
+ * 执行拦截器，用于跟踪、租户标记、SQL注释注入和自定义统计等
+ * <p>
+ * 拦截器通过 {@link Database#addInterceptor(Interceptor)} 按顺序注册，before 方法按注册顺序调用，
+ * after 方法按相反顺序调用；拦截器在 {@link Statement} 获取连接时确定，此后注册或移除的拦截器只影响新的实例。
+ * 没有注册拦截器时执行过程无任何额外开销。
+ * </p>
+ * <p>
+ * 拦截器在执行语句的线程中调用，before 方法抛出的异常将中止操作并传递给调用者(关闭除外)；
+ * 获取连接、执行和关闭之后总是调用 after 方法，失败时传入异常，after 方法抛出的异常被忽略，
+ * 不会掩盖原有异常，也不影响其它拦截器。参数数组为 Statement 内部状态，不应修改或保留引用。
+ * 所有方法默认为空，只需实现关注的方法。
+ * </p>
+ *
+ * <pre>
+ * <code>
+ * Database.addInterceptor(new Interceptor() {
+ *     public void afterExecute(NamedSQL sql, Object[] parameters, long nanos, Throwable error) {
+ *         System.out.println(sql.getNamedSQL() + " " + nanos / 1000 + "us");
+ *     }
+ * });
+ * </code>
+ * </pre>
+ */
+public interface Interceptor {
+
+	/**
+	 * 预编译语句之前调用，可修改将要执行的SQL，例如添加注释
+	 *
+	 * @param sql 命名参数SQL
+	 * @param execute 将要预编译的SQL
+	 * @return 预编译的SQL
+	 */
+	default String prepare(NamedSQL sql, String execute) {
+		return execute;
+	}
+
+	/**
+	 * 从连接池获取连接之前调用
+	 *
+	 * @param sql 命名参数SQL
+	 */
+	default void beforeAcquire(NamedSQL sql) {
+	}
+
+	/**
+	 * 从连接池获取连接之后调用
+	 *
+	 * @param sql 命名参数SQL
+	 * @param nanos 获取连接耗时(纳秒)
+	 * @param error 获取连接失败的异常 / null 获取成功
+	 */
+	default void afterAcquire(NamedSQL sql, long nanos, Throwable error) {
+	}
+
+	/**
+	 * 执行语句之前调用，批处理时调用 {@link #beforeFlush(NamedSQL, int)}
+	 *
+	 * @param sql 命名参数SQL
+	 * @param parameters 参数值，按参数位置
+	 */
+	default void beforeExecute(NamedSQL sql, Object[] parameters) {
+	}
+
+	/**
+	 * 执行语句之后调用
+	 *
+	 * @param sql 命名参数SQL
+	 * @param parameters 参数值，按参数位置
+	 * @param nanos 执行耗时(纳秒)
+	 * @param error 执行失败的异常 / null 执行成功
+	 */
+	default void afterExecute(NamedSQL sql, Object[] parameters, long nanos, Throwable error) {
+	}
+
+	/**
+	 * 执行批处理队列之前调用
+	 *
+	 * @param sql 命名参数SQL
+	 * @param batches 批处理队列中的项数
+	 */
+	default void beforeFlush(NamedSQL sql, int batches) {
+	}
+
+	/**
+	 * 执行批处理队列之后调用
+	 *
+	 * @param sql 命名参数SQL
+	 * @param batches 批处理队列中的项数
+	 * @param nanos 执行耗时(纳秒)
+	 * @param error 执行失败的异常 / null 执行成功
+	 */
+	default void afterFlush(NamedSQL sql, int batches, long nanos, Throwable error) {
+	}
+
+	/**
+	 * 关闭 {@link Statement} 之前调用，抛出的异常被忽略
+	 *
+	 * @param sql 命名参数SQL
+	 */
+	default void beforeClose(NamedSQL sql) {
+	}
+
+	/**
+	 * 关闭 {@link Statement} 之后调用
+	 *
+	 * @param sql 命名参数SQL
+	 * @param nanos 从获取连接到关闭的耗时(纳秒)
+	 * @param error 关闭失败的异常 / null 关闭成功
+	 */
+	default void afterClose(NamedSQL sql, long nanos, Throwable error) {
+	}
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright © 2017-2025 重庆骄智科技有限公司.
+ * 本软件根据 Apache License 2.0 开源，详见 LICENSE 文件。
+ */
+package com.joyzl.database;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 合并主键查询，将短时间内多个线程请求的单条记录查询合并为一次 IN 查询
+ * <p>
+ * 在时间窗口内或达到最大数量时，收集的主键通过集合参数展开为一次 IN 查询，在单个数据库连接执行，
+ * 查询结果按主键字段值分发到每个请求；同一窗口内重复的主键只查询一次，获得相同的 CompletableFuture。
+ * </p>
+ *
+ * <pre>
+ * <code>
+ * Loader&lt;User&gt; loader = Database.loader("SELECT * FROM `users` WHERE `id` IN (?ids)", "ids", "id", User.class);
+ * CompletableFuture&lt;User&gt; user = loader.load(1);
+ * </code>
+ * </pre>
+ *
+ * SQL语句中的主键参数必须位于 IN (...) 中，除主键参数外不能有其它参数。
+ */
+public final class Loader<T> {
+
+	private final String sql;
+	private final String key;
+	private final String column;
+	private final Class<T> clazz;
+	private final int maximum;
+	private final long window;
+
+	// 当前窗口收集的主键和请求
+	private List<Object> keys;
+	private Map<Object, CompletableFuture<T>> futures;
+	private ScheduledFuture<?> timer;
+
+	/**
+	 * @param sql 命名参数SQL语句，主键参数位于 IN (...) 中
+	 * @param key 主键参数名
+	 * @param column 结果集中的主键字段名
+	 * @param clazz 记录映射类型
+	 * @param maximum 单次查询的最大主键数量，不能超过 {@link NamedSQL#MAX_BUCKET}
+	 * @param window 收集主键的时间窗口(毫秒)
+	 */
+	Loader(String sql, String key, String column, Class<T> clazz, int maximum, long window) {
+		if (maximum < 1 || maximum > NamedSQL.MAX_BUCKET) {
+			throw new IllegalArgumentException("最大主键数量超出范围 1~" + NamedSQL.MAX_BUCKET + ":" + maximum);
+		}
+		this.sql = sql;
+		this.key = key;
+		this.column = column;
+		this.clazz = clazz;
+		this.maximum = maximum;
+		this.window = window;
+		keys = new ArrayList<>();
+		futures = new HashMap<>();
+	}
+
+	/**
+	 * 请求加载指定主键的记录
+	 *
+	 * @param value 主键值
+	 * @return {@code CompletableFuture<T>} 记录不存在时完成为 null
+	 */
+	public final CompletableFuture<T> load(Object value) {
+		final Object normalized = normalize(value);
+		final List<Object> k;
+		final Map<Object, CompletableFuture<T>> f;
+		final CompletableFuture<T> future;
+		synchronized (this) {
+			CompletableFuture<T> exist = futures.get(normalized);
+			if (exist != null) {
+				return exist;
+			}
+			future = new CompletableFuture<>();
+			futures.put(normalized, future);
+			keys.add(value);
+
+			if (keys.size() >= maximum) {
+				// 达到最大数量立即在当前线程执行
+				if (timer != null) {
+					timer.cancel(false);
+					timer = null;
+				}
+				k = keys;
+				f = futures;
+				keys = new ArrayList<>();
+				futures = new HashMap<>();
+			} else {
+				if (timer == null) {
+					timer = Database.scheduler().schedule(() -> Database.executor().execute(this::dispatch), window, TimeUnit.MILLISECONDS);
+				}
+				return future;
+			}
+		}
+		execute(k, f);
+		return future;
+	}
+
+	/**
+	 * 时间窗口结束时执行
+	 */
+	private void dispatch() {
+		final List<Object> k;
+		final Map<Object, CompletableFuture<T>> f;
+		synchronized (this) {
+			timer = null;
+			if (keys.isEmpty()) {
+				return;
+			}
+			k = keys;
+			f = futures;
+			keys = new ArrayList<>();
+			futures = new HashMap<>();
+		}
+		execute(k, f);
+	}
+
+	private void execute(List<Object> k, Map<Object, CompletableFuture<T>> f) {
+		final Map<Object, T> entities = new HashMap<>();
+		try (Statement statement = Database.instance(sql)) {
+			statement.setValue(key, k);
+			if (statement.execute()) {
+				statement.fetch(clazz, column, entities);
+			}
+		} catch (Throwable e) {
+			for (CompletableFuture<T> future : f.values()) {
+				future.completeExceptionally(e);
+			}
+			return;
+		}
+
+		// 连接已回收后再完成请求，避免后续处理占用连接
+		for (Map.Entry<Object, T> entry : entities.entrySet()) {
+			final CompletableFuture<T> future = f.remove(normalize(entry.getKey()));
+			if (future != null) {
+				future.complete(entry.getValue());
+			}
+		}
+		for (CompletableFuture<T> future : f.values()) {
+			future.complete(null);
+		}
+	}
+
+	/**
+	 * 整数主键统一为 Long，使 Integer 参数与数据库返回的 Long/BigInteger/BigDecimal 字段值匹配，
+	 * 例如 Oracle NUMBER 字段返回 BigDecimal；超出 Long 范围的整数和有小数的数值统一为去除末尾0的 BigDecimal
+	 */
+	static Object normalize(Object value) {
+		if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+			return ((Number) value).longValue();
+		}
+		if (value instanceof BigInteger) {
+			value = new BigDecimal((BigInteger) value);
+		}
+		if (value instanceof BigDecimal) {
+			final BigDecimal decimal = ((BigDecimal) value).stripTrailingZeros();
+			if (decimal.scale() <= 0) {
+				try {
+					return decimal.longValueExact();
+				} catch (ArithmeticException e) {
+					// 超出 Long 范围
+				}
+			}
+			return decimal;
+		}
+		return value;
+	}
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright © 2017-2025 重庆骄智科技有限公司.
+ * 本软件根据 Apache License 2.0 开源，详见 LICENSE 文件。
+ */
+package com.joyzl.database;
+
+import java.sql.SQLException;
+
+/**
+ * MySQL 方言
+ */
+public final class MySQLDialect implements Dialect {
+
+	/**
+	 * 创建 MySQL 方言，通常由 {@link java.util.ServiceLoader} 创建
+	 */
+	public MySQLDialect() {
+	}
+
+	@Override
+	public String name() {
+		return "mysql";
+	}
+
+	@Override
+	public boolean accept(String url) {
+		return url.startsWith("jdbc:mysql:");
+	}
+
+	@Override
+	public String driver() {
+		// MySQL 采用了新的包名称
+		return "com.mysql.cj.jdbc.Driver";
+	}
+
+	/**
+	 * 附加连接字符串中未指定的客户端预编译缓存参数，已指定的参数(包括指定为 false)保持不变；
+	 * 不附加改变会话语义的参数，例如 useLocalSessionState 须由使用者在连接字符串中指定
+	 */
+	@Override
+	public String url(String url) {
+		// 缓存客户端预编译语句的解析结果
+		url = parameter(url, "cachePrepStmts", "true");
+		url = parameter(url, "prepStmtCacheSize", "256");
+		url = parameter(url, "prepStmtCacheSqlLimit", "2048");
+		return url;
+	}
+
+	@Override
+	public void streaming(java.sql.Statement statement) throws SQLException {
+		// Connector/J 仅在 Integer.MIN_VALUE 时逐行读取结果集，其它值将读取全部记录到内存
+		statement.setFetchSize(Integer.MIN_VALUE);
+	}
+
+	@Override
+	public boolean retryable(SQLException e) {
+		switch (e.getErrorCode()) {
+			case 1205: // 锁等待超时
+			case 1213: // 死锁
+				return true;
+			default:
+				return Dialect.super.retryable(e);
+		}
+	}
+
+	/**
+	 * 连接字符串未指定参数时附加参数，参数名忽略大小写
+	 */
+	static String parameter(String url, String name, String value) {
+		final int query = url.indexOf('?');
+		if (query >= 0) {
+			int start = query + 1, end;
+			while (start < url.length()) {
+				end = url.indexOf('&', start);
+				if (end < 0) {
+					end = url.length();
+				}
+				final int equal = url.indexOf('=', start);
+				final int length = (equal < 0 || equal > end ? end : equal) - start;
+				if (length == name.length() && url.regionMatches(true, start, name, 0, length)) {
+					return url;
+				}
+				start = end + 1;
+			}
+		}
+		return url + (query < 0 ? '?' : url.endsWith("?") || url.endsWith("&") ? "" : "&") + name + '=' + value;
+	}
+}
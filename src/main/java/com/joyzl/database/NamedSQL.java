@@ -1 +1 @@
-/* * Copyright © 2017-2025 重庆骄智科技有限公司. * 本软件根据 Apache License 2.0 开源，详见 LICENSE 文件。 */package com.joyzl.database;import java.sql.Types;import java.util.ArrayList;import java.util.Collection;import java.util.List;import java.util.Map;import java.util.concurrent.ConcurrentHashMap;/** * SQL命名参数支持 * <p> * JDBC默认采用索引传递参数，错误率高，编码效率低，不便于阅读排错<br> * {@code SELECT * FROM `users` WHERE `id`=?}<br> * {@code {CALL demoSp(?, ?)} }<br> * {@code Statement.setInt(1,10);} * </p> * <p> * SQL命名参数采用参数名定位参数<br> * {@code SELECT * FROM `users` WHERE `id`=?id}<br> * {@code {CALL demoSp(?p1, ?p2)} }<br> * {@code Statement.setValue("id",10);}<br> * 参数名称只能使用 A~Z a~z 01~9 _ 字符 * </p> * * @author ZhangXi 2020年3月21日 * */public final class NamedSQL {	// 静态集合缓存使用过的NamedSQL	private final static Map<String, NamedSQL> NAMED_SQL_CACHES = new ConcurrentHashMap<>();	/**	 * 获取对象实例，此方法将缓存分析过的SQL语句以提高性能	 *	 * @param sql	 * @return NamedSQL	 */	public static NamedSQL get(String sql) {		NamedSQL named_sql = NAMED_SQL_CACHES.get(sql);		if (named_sql == null) {			named_sql = new NamedSQL(sql);			NAMED_SQL_CACHES.put(sql, named_sql);		}		return named_sql;	}	/**	 * 获取所有缓存的NamedSQL实例	 *	 * @return {@code  Collection<NamedSQL>}	 */	public final static Collection<NamedSQL> select() {		return NAMED_SQL_CACHES.values();	}	/**	 * 将字符串表示的类型转化为SQL.Types中对应的类型	 *	 * @param type	 * @return 不匹配的类型 返回 Types.OTHER	 */	public final static int getType(String type) {		switch (type.toUpperCase()) {			case "ARRAY":				return Types.ARRAY;			case "BIGINT":				return Types.BIGINT;			case "BINARY":				return Types.BINARY;			case "BIT":				return Types.BIT;			case "BLOB":				return Types.BLOB;			case "BOOLEAN":				return Types.BOOLEAN;			case "CHAR":				return Types.CHAR;			case "CLOB":				return Types.CLOB;			case "DATALINK":				return Types.DATALINK;			case "DATE":				return Types.DATE;			case "DECIMAL":				return Types.DECIMAL;			case "DISTINCT":				return Types.DISTINCT;			case "DOUBLE":				return Types.DOUBLE;			case "FLOAT":				return Types.FLOAT;			case "INTEGER":				return Types.INTEGER;			case "JAVA_OBJECT":				return Types.JAVA_OBJECT;			case "LONGNVARCHAR":				return Types.LONGNVARCHAR;			case "LONGVARBINARY":				return Types.LONGVARBINARY;			case "LONGVARCHAR":				return Types.LONGVARCHAR;			case "NCHAR":				return Types.NCHAR;			case "NCLOB":				return Types.NCLOB;			case "NULL":				return Types.NULL;			case "NUMERIC":				return Types.NUMERIC;			case "NVARCHAR":				return Types.NVARCHAR;			case "OTHER":				return Types.OTHER;			case "REAL":				return Types.REAL;			case "REF":				return Types.REF;			case "REF_CURSOR":				return Types.REF_CURSOR;			case "ROWID":				return Types.ROWID;			case "SMALLINT":				return Types.SMALLINT;			case "SQLXML":				return Types.SQLXML;			case "STRUCT":				return Types.STRUCT;			case "TIME":				return Types.TIME;			case "TIME_WITH_TIMEZONE":				return Types.TIME_WITH_TIMEZONE;			case "TIMESTAMP":				return Types.TIMESTAMP;			case "TIMESTAMP_WITH_TIMEZONE":				return Types.TIMESTAMP_WITH_TIMEZONE;			case "TINYINT":				return Types.TINYINT;			case "VARBINARY":				return Types.VARBINARY;			case "VARCHAR":				return Types.VARCHAR;			default:				return Types.OTHER;		}	}	////////////////////////////////////////////////////////////////////////////////	// 命名SQL	private final String named;	// 执行SQL	private final String execute;	// SQL命令	private final String command;	// 名称集	final String[] names;	// 类型集	final Integer[] types;	// 是否存储过程/函数	private final boolean call;	private NamedSQL(String named_sql) {		if (named_sql == null) {			throw new IllegalArgumentException("SQL语句怎么能为空呢???");		}		if (named_sql.length() < 3) {			throw new IllegalArgumentException("SQL语句怎么能这么短呢???");		}		// SELECT * FROM table WHERE name = ?key AND email = ?key;		// {CALL demoSp(?p1, ?p2:INTEGER)}		// ?name 参数名允许的字符 A~Z a~z 01~9 _,其间不能有空白字符		// :INTEGER 为注册参数类型,用于返回参数,其间不能有空白字符		char c;		List<String> name_list = new ArrayList<String>();		List<Integer> type_list = new ArrayList<Integer>();		StringBuilder sql_builder = new StringBuilder();		StringBuilder name_builder = new StringBuilder();		for (int index = 0; index < named_sql.length(); index++) {			c = named_sql.charAt(index);			// 过滤多余空白			if (Character.isWhitespace(c)) {				sql_builder.append(' ');			} else {				sql_builder.append(c);			}			// 检查参数			if ('?' == c) {				// 参数名				while (++index < named_sql.length()) {					c = named_sql.charAt(index);					if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || (c >= '0' && c <= '9')) {						name_builder.append(c);					} else {						break;					}				}				name_list.add(name_builder.toString());				name_builder.setLength(0);				if (index >= named_sql.length()) {					// 20200613 如果不判断是否结束,参数的最后一个字符会附加到执行SQL中					break;				} else if (':' == c) {					// 参数类型					while (++index < named_sql.length()) {						c = named_sql.charAt(index);						if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || (c >= '0' && c <= '9')) {							name_builder.append(c);						} else {							sql_builder.append(c);							break;						}					}					type_list.add(getType(name_builder.toString()));					name_builder.setLength(0);				} else {					type_list.add(null);					sql_builder.append(c);				}			}		}		name_builder.setLength(0);		for (int index = 0; index < sql_builder.length(); index++) {			c = sql_builder.charAt(index);			if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {				name_builder.append(c);			} else {				// length == 0 说明还未开始命令字母(未开始字母字符)				if (name_builder.length() > 0) {					// length > 0 说明命令字母已经结束(已遇到非字母字符)					break;				}			}		}		named = named_sql;		command = name_builder.toString();		execute = sql_builder.toString();		names = name_list.toArray(new String[name_list.size()]);		types = type_list.toArray(new Integer[type_list.size()]);		// 标记是否存储过程/函数		call = "CALL".equalsIgnoreCase(command);	}	public String name(int index) {		return names[index];	}	public String[] getNames() {		return names;	}	public Integer[] getTypes() {		return types;	}	/**	 * 获取是否具有参数	 *	 * @return true 有参数 / false 无任何参数	 */	public final boolean hasParameters() {		return hasInParameters() || hasOutParameters();	}	/**	 * 获取是否具有输入参数	 *	 * @return true 有参数 / false 无任何输入参数	 */	public final boolean hasInParameters() {		return names != null && names.length > 0;	}	/**	 * 获取是否具有输出参数	 *	 * @return true 有参数 / false 无任何参数	 */	public final boolean hasOutParameters() {		return types != null && types.length > 0;	}	/**	 * 获取用户定义的命名SQL	 *	 * @return String 不会返回 null	 */	public final String getNamedSQL() {		return named;	}	/**	 * 获取用于JDBC可执行SQL	 *	 * @return String 不会返回 null	 */	public final String getExcuteSQL() {		return execute;	}	/**	 * 获取SQL的命令字<br>	 * <p>	 * 数据库定义语言(Data Definition Language, DDL)<br>	 * CREATE / ALTER / DROP <br>	 * 数据库操作语言(Data Mabipulation Language,DML)<br>	 * INSERT / UPDATE / DELETE<br>	 * 数据库查询语言(Data Query Language,DQL)<br>	 * SELECT<br>	 * 数据库控制语言(Data Control Language,DCL)<br>	 * GRANT / REVOKE / COMMIT / ROLLBACK<br>	 * 存储过程/函数执行语言<br>	 * CALL	 * </p>	 *	 * @return SQL命令(大写)	 */	public final String getSQLCommand() {		return command;	}	/**	 * 是否存储过程/函数	 *	 * @return true / false	 */	public final boolean isCall() {		return call;	}}
\ No newline at end of file
+/* * Copyright © 2017-2025 重庆骄智科技有限公司. * 本软件根据 Apache License 2.0 开源，详见 LICENSE 文件。 */package com.joyzl.database;import java.sql.Types;import java.util.ArrayList;import java.util.Collection;import java.util.Collections;import java.util.List;import java.util.Map;import java.util.TreeMap;import java.util.concurrent.ConcurrentHashMap;/** * SQL命名参数支持 * <p> * JDBC默认采用索引传递参数，错误率高，编码效率低，不便于阅读排错<br> * {@code SELECT * FROM `users` WHERE `id`=?}<br> * {@code {CALL demoSp(?, ?)} }<br> * {@code Statement.setInt(1,10);} * </p> * <p> * SQL命名参数采用参数名定位参数<br> * {@code SELECT * FROM `users` WHERE `id`=?id}<br> * {@code {CALL demoSp(?p1, ?p2)} }<br> * {@code Statement.setValue("id",10);}<br> * 参数名称只能使用 A~Z a~z 01~9 _ 字符 * </p> * * @author ZhangXi 2020年3月21日 * */public final class NamedSQL {	// 静态集合缓存使用过的NamedSQL	private final static Map<String, NamedSQL> NAMED_SQL_CACHES = new ConcurrentHashMap<>();	/**	 * 获取对象实例，此方法将缓存分析过的SQL语句以提高性能	 *	 * @param sql	 * @return NamedSQL	 */	public static NamedSQL get(String sql) {		NamedSQL named_sql = NAMED_SQL_CACHES.get(sql);		if (named_sql == null) {			named_sql = new NamedSQL(sql);			NAMED_SQL_CACHES.put(sql, named_sql);		}		return named_sql;	}	/**	 * 注册编译期分析的SQL语句，运行时不再分析；由注解处理器生成的代码调用，参考 {@link SQL}	 *	 * @param named 命名SQL	 * @param execute 执行SQL	 * @param command SQL命令	 * @param names 名称集	 * @param types 类型集	 * @param positions 参数占位符在执行SQL中的位置	 * @return NamedSQL 如果已缓存则返回缓存的实例	 */	public static NamedSQL precompiled(String named, String execute, String command, String[] names, Integer[] types, int[] positions) {		NamedSQL named_sql = NAMED_SQL_CACHES.get(named);		if (named_sql == null) {			named_sql = new NamedSQL(named, execute, command, names, types, positions);			final NamedSQL exist = NAMED_SQL_CACHES.putIfAbsent(named, named_sql);			if (exist != null) {				return exist;			}		}		return named_sql;	}	/**	 * 获取所有缓存的NamedSQL实例	 *	 * @return {@code  Collection<NamedSQL>}	 */	public final static Collection<NamedSQL> select() {		return NAMED_SQL_CACHES.values();	}	/**	 * 将字符串表示的类型转化为SQL.Types中对应的类型	 *	 * @param type	 * @return 不匹配的类型 返回 Types.OTHER	 */	public final static int getType(String type) {		switch (type.toUpperCase()) {			case "ARRAY":				return Types.ARRAY;			case "BIGINT":				return Types.BIGINT;			case "BINARY":				return Types.BINARY;			case "BIT":				return Types.BIT;			case "BLOB":				return Types.BLOB;			case "BOOLEAN":				return Types.BOOLEAN;			case "CHAR":				return Types.CHAR;			case "CLOB":				return Types.CLOB;			case "DATALINK":				return Types.DATALINK;			case "DATE":				return Types.DATE;			case "DECIMAL":				return Types.DECIMAL;			case "DISTINCT":				return Types.DISTINCT;			case "DOUBLE":				return Types.DOUBLE;			case "FLOAT":				return Types.FLOAT;			case "INTEGER":				return Types.INTEGER;			case "JAVA_OBJECT":				return Types.JAVA_OBJECT;			case "LONGNVARCHAR":				return Types.LONGNVARCHAR;			case "LONGVARBINARY":				return Types.LONGVARBINARY;			case "LONGVARCHAR":				return Types.LONGVARCHAR;			case "NCHAR":				return Types.NCHAR;			case "NCLOB":				return Types.NCLOB;			case "NULL":				return Types.NULL;			case "NUMERIC":				return Types.NUMERIC;			case "NVARCHAR":				return Types.NVARCHAR;			case "OTHER":				return Types.OTHER;			case "REAL":				return Types.REAL;			case "REF":				return Types.REF;			case "REF_CURSOR":				return Types.REF_CURSOR;			case "ROWID":				return Types.ROWID;			case "SMALLINT":				return Types.SMALLINT;			case "SQLXML":				return Types.SQLXML;			case "STRUCT":				return Types.STRUCT;			case "TIME":				return Types.TIME;			case "TIME_WITH_TIMEZONE":				return Types.TIME_WITH_TIMEZONE;			case "TIMESTAMP":				return Types.TIMESTAMP;			case "TIMESTAMP_WITH_TIMEZONE":				return Types.TIMESTAMP_WITH_TIMEZONE;			case "TINYINT":				return Types.TINYINT;			case "VARBINARY":				return Types.VARBINARY;			case "VARCHAR":				return Types.VARCHAR;			default:				return Types.OTHER;		}	}	/**	 * 集合参数的最大元素数量，与 Oracle IN 列表的限制一致	 */	public final static int MAX_BUCKET = 1000;	/**	 * 将集合元素数量向上取整到档位 1,2,4,8...512,1000，使不同数量的集合只产生少量不同的SQL	 *	 * @param size 集合元素数量	 * @return 档位，至少为1	 */	public final static int bucket(int size) {		if (size > MAX_BUCKET) {			throw new IllegalArgumentException("集合参数元素数量超过限制 " + MAX_BUCKET + ":" + size);		}		if (size <= 1) {			return 1;		}		final int bucket = Integer.highestOneBit(size - 1) << 1;		return bucket > MAX_BUCKET ? MAX_BUCKET : bucket;	}	////////////////////////////////////////////////////////////////////////////////	// 命名SQL	private final String named;	// 执行SQL	private final String execute;	// SQL命令	private final String command;	// 名称集	final String[] names;	// 类型集	final Integer[] types;	// 是否存储过程/函数	private final boolean call;	// 参数占位符在执行SQL中的位置	private final int[] positions;	// 集合参数展开的档位，参数名 -> 占位符数量	private final Map<String, Integer> buckets;	// 未展开的原始实例	private final NamedSQL base;	// 集合参数展开的变体实例，仅原始实例持有	private final Map<String, NamedSQL> variants;	private NamedSQL(String named_sql) {		if (named_sql == null) {			throw new IllegalArgumentException("SQL语句怎么能为空呢???");		}		if (named_sql.length() < 3) {			throw new IllegalArgumentException("SQL语句怎么能这么短呢???");		}		// SELECT * FROM table WHERE name = ?key AND email = ?key;		// {CALL demoSp(?p1, ?p2:INTEGER)}		// ?name 参数名允许的字符 A~Z a~z 01~9 _,其间不能有空白字符		// :INTEGER 为注册参数类型,用于返回参数,其间不能有空白字符		char c;		List<String> name_list = new ArrayList<String>();		List<Integer> type_list = new ArrayList<Integer>();		List<Integer> position_list = new ArrayList<Integer>();		StringBuilder sql_builder = new StringBuilder();		StringBuilder name_builder = new StringBuilder();		for (int index = 0; index < named_sql.length(); index++) {			c = named_sql.charAt(index);			// 过滤多余空白			if (Character.isWhitespace(c)) {				sql_builder.append(' ');			} else {				sql_builder.append(c);			}			// 检查参数			if ('?' == c) {				position_list.add(sql_builder.length() - 1);				// 参数名				while (++index < named_sql.length()) {					c = named_sql.charAt(index);					if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || (c >= '0' && c <= '9')) {						name_builder.append(c);					} else {						break;					}				}				name_list.add(name_builder.toString());				name_builder.setLength(0);				if (index >= named_sql.length()) {					// 20200613 如果不判断是否结束,参数的最后一个字符会附加到执行SQL中					break;				} else if (':' == c) {					// 参数类型					while (++index < named_sql.length()) {						c = named_sql.charAt(index);						if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || (c >= '0' && c <= '9')) {							name_builder.append(c);						} else {							sql_builder.append(c);							break;						}					}					type_list.add(getType(name_builder.toString()));					name_builder.setLength(0);				} else {					type_list.add(null);					sql_builder.append(c);				}			}		}		name_builder.setLength(0);		for (int index = 0; index < sql_builder.length(); index++) {			c = sql_builder.charAt(index);			if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {				name_builder.append(c);			} else {				// length == 0 说明还未开始命令字母(未开始字母字符)				if (name_builder.length() > 0) {					// length > 0 说明命令字母已经结束(已遇到非字母字符)					break;				}			}		}		named = named_sql;		command = name_builder.toString();		execute = sql_builder.toString();		names = name_list.toArray(new String[name_list.size()]);		types = type_list.toArray(new Integer[type_list.size()]);		// 标记是否存储过程/函数		call = "CALL".equalsIgnoreCase(command);		positions = new int[position_list.size()];		for (int index = 0; index < positions.length; index++) {			positions[index] = position_list.get(index);		}		buckets = Collections.emptyMap();		variants = new ConcurrentHashMap<>();		base = this;	}	/**	 * 编译期分析的实例	 */	private NamedSQL(String named, String execute, String command, String[] names, Integer[] types, int[] positions) {		if (names.length != positions.length || types.length > names.length) {			throw new IllegalArgumentException("预编译SQL参数不匹配:" + named);		}		this.named = named;		this.execute = execute;		this.command = command;		this.names = names;		this.types = types;		this.positions = positions;		call = "CALL".equalsIgnoreCase(command);		buckets = Collections.emptyMap();		variants = new ConcurrentHashMap<>();		base = this;	}	/**	 * 集合参数展开的变体，指定的参数占位符被展开为指定数量的占位符	 *	 * @param base 原始实例	 * @param buckets 参数名 -> 占位符数量	 */	private NamedSQL(NamedSQL base, Map<String, Integer> buckets) {		final List<String> name_list = new ArrayList<String>();		final List<Integer> type_list = new ArrayList<Integer>();		final List<Integer> position_list = new ArrayList<Integer>();		final StringBuilder sql_builder = new StringBuilder();		Integer size;		int offset = 0;		for (int index = 0; index < base.names.length; index++) {			sql_builder.append(base.execute, offset, base.positions[index]);			offset = base.positions[index] + 1;			size = buckets.get(base.names[index]);			if (size == null) {				size = 1;			}			for (int s = 0; s < size; s++) {				if (s > 0) {					sql_builder.append(',');				}				position_list.add(sql_builder.length());				sql_builder.append('?');				name_list.add(base.names[index]);				// 末尾参数可能没有类型项				type_list.add(s == 0 && index < base.types.length ? base.types[index] : null);			}		}		sql_builder.append(base.execute, offset, base.execute.length());		named = base.named;		command = base.command;		call = base.call;		execute = sql_builder.toString();		names = name_list.toArray(new String[name_list.size()]);		types = type_list.toArray(new Integer[type_list.size()]);		positions = new int[position_list.size()];		for (int index = 0; index < positions.length; index++) {			positions[index] = position_list.get(index);		}		this.buckets = buckets;		this.variants = null;		this.base = base;	}	/**	 * 获取集合参数展开的变体实例，在当前实例已展开参数的基础上将指定参数展开为指定数量的占位符；	 * 变体实例由原始实例缓存，相同的展开组合总是返回相同的实例	 *	 * @param name 参数名	 * @param bucket 占位符数量，参考 {@link #bucket(int)}	 * @return NamedSQL 变体实例	 */	public final NamedSQL expand(String name, int bucket) {		final Integer current = buckets.get(name);		if (current != null ? current == bucket : bucket == 1) {			return this;		}		final Map<String, Integer> map = new TreeMap<>(buckets);		if (bucket == 1) {			map.remove(name);		} else {			map.put(name, bucket);		}		if (map.isEmpty()) {			return base;		}		final String key = map.toString();		NamedSQL variant = base.variants.get(key);		if (variant == null) {			variant = new NamedSQL(base, Collections.unmodifiableMap(map));			base.variants.put(key, variant);		}		return variant;	}	/**	 * 获取未展开集合参数的原始实例	 *	 * @return NamedSQL 原始实例，如果当前为原始实例则返回自身	 */	public final NamedSQL getBase() {		return base;	}	public String name(int index) {		return names[index];	}	public String[] getNames() {		return names;	}	public Integer[] getTypes() {		return types;	}	/**	 * 获取是否具有参数	 *	 * @return true 有参数 / false 无任何参数	 */	public final boolean hasParameters() {		return hasInParameters() || hasOutParameters();	}	/**	 * 获取是否具有输入参数	 *	 * @return true 有参数 / false 无任何输入参数	 */	public final boolean hasInParameters() {		return names != null && names.length > 0;	}	/**	 * 获取是否具有输出参数	 *	 * @return true 有参数 / false 无任何参数	 */	public final boolean hasOutParameters() {		return types != null && types.length > 0;	}	/**	 * 获取用户定义的命名SQL	 *	 * @return String 不会返回 null	 */	public final String getNamedSQL() {		return named;	}	/**	 * 获取用于JDBC可执行SQL	 *	 * @return String 不会返回 null	 */	public final String getExcuteSQL() {		return execute;	}	/**	 * 获取参数占位符在执行SQL中的位置，用于注解处理器生成预编译代码	 *	 * @return int[] 与 {@link #getNames()} 一一对应	 */	public final int[] getPositions() {		return positions.clone();	}	/**	 * 获取SQL的命令字<br>	 * <p>	 * 数据库定义语言(Data Definition Language, DDL)<br>	 * CREATE / ALTER / DROP <br>	 * 数据库操作语言(Data Mabipulation Language,DML)<br>	 * INSERT / UPDATE / DELETE<br>	 * 数据库查询语言(Data Query Language,DQL)<br>	 * SELECT<br>	 * 数据库控制语言(Data Control Language,DCL)<br>	 * GRANT / REVOKE / COMMIT / ROLLBACK<br>	 * 存储过程/函数执行语言<br>	 * CALL	 * </p>	 *	 * @return SQL命令(大写)	 */	public final String getSQLCommand() {		return command;	}	/**	 * 是否存储过程/函数	 *	 * @return true / false	 */	public final boolean isCall() {		return call;	}}
\ No newline at end of file
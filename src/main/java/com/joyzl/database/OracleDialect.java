@@ -0,0 +1,69 @@
+/*
+ * Copyright © 2017-2025 重庆骄智科技有限公司.
+ * 本软件根据 Apache License 2.0 开源，详见 LICENSE 文件。
+ */
+package com.joyzl.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Oracle 方言
+ */
+public final class OracleDialect implements Dialect {
+
+	/**
+	 * 创建 Oracle 方言，通常由 {@link java.util.ServiceLoader} 创建
+	 */
+	public OracleDialect() {
+	}
+
+	@Override
+	public String name() {
+		return "oracle";
+	}
+
+	@Override
+	public boolean accept(String url) {
+		// jdbc:oracle:thin:@myhost:1521/myorcldbservicename
+		return url.startsWith("jdbc:oracle:");
+	}
+
+	@Override
+	public String driver() {
+		return "oracle.jdbc.driver.OracleDriver";
+	}
+
+	@Override
+	public PreparedStatement prepare(Connection connection, String sql, String command) throws SQLException {
+		// Oracle 获取生成主键时需改写语句为 RETURNING，仅插入语句需要
+		if ("INSERT".equalsIgnoreCase(command)) {
+			return connection.prepareStatement(sql, java.sql.Statement.RETURN_GENERATED_KEYS);
+		}
+		return connection.prepareStatement(sql);
+	}
+
+	@Override
+	public void streaming(java.sql.Statement statement) throws SQLException {
+		// 默认每次往返仅获取10行
+		statement.setFetchSize(500);
+	}
+
+	@Override
+	public String explain(String sql) {
+		// 执行计划写入 PLAN_TABLE，通过 DBMS_XPLAN.DISPLAY 查看
+		return "EXPLAIN PLAN FOR " + sql;
+	}
+
+	@Override
+	public boolean retryable(SQLException e) {
+		switch (e.getErrorCode()) {
+			case 60: // 死锁
+			case 8177: // 无法序列化访问
+				return true;
+			default:
+				return Dialect.super.retryable(e);
+		}
+	}
+}
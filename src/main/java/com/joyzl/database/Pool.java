@@ -0,0 +1,281 @@
+/*
+ * Copyright © 2017-2025 重庆骄智科技有限公司.
+ * 本软件根据 Apache License 2.0 开源，详见 LICENSE 文件。
+ */
+package com.joyzl.database;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * 数据库连接池，缓存空闲连接并记录连接使用情况
+ */
+public final class Pool {
+
+	// 连接字符串中的密码：user:password@host、Oracle user/password@host 和 password=xxx 参数
+	private final static Pattern PASSWORD = Pattern.compile("(//[^/:@]*:|thin:[^/:@]*/)[^@/]*@|((?i)(?:password|pwd)=)[^&;]*");
+
+	// 数据库方言
+	final Dialect dialect;
+	// 数据库连接字符串
+	private final String url;
+	// 数据库用户名
+	private final String user;
+	// 数据库用户密码
+	private final String password;
+	// 数据库连接队列
+	final Queue<Connection> connections;
+	// 熔断器
+	private final Breaker breaker;
+	// 最大空闲连接数量
+	private final int maximum;
+	// 当前空闲连接上限，由 Tuner 调节
+	private volatile int limit;
+
+	// 统计
+	private final AtomicLong created = new AtomicLong();
+	private final AtomicLong borrowed = new AtomicLong();
+	private final AtomicLong released = new AtomicLong();
+	private final AtomicLong missed = new AtomicLong();
+	private final AtomicLong waited = new AtomicLong();
+	private final AtomicInteger peak = new AtomicInteger();
+
+	Pool(Dialect dialect, String url, String user, String password, int maximum) {
+		this.dialect = dialect;
+		this.url = dialect.url(url);
+		this.user = user;
+		this.password = password;
+		connections = new ArrayBlockingQueue<>(maximum);
+		this.maximum = limit = maximum;
+		breaker = new Breaker(this);
+	}
+
+	/**
+	 * 获取数据库连接，优先从连接队列获取，如果连接队列为空则新建连接
+	 *
+	 * @return Connection
+	 * @throws SQLException
+	 * @throws UnavailableException 熔断器打开
+	 */
+	final Connection getConnection() throws SQLException {
+		if (!breaker.allow()) {
+			throw new UnavailableException(mask(url), breaker.getState());
+		}
+		final long start = System.nanoTime();
+		Connection connection;
+		while ((connection = connections.poll()) != null) {
+			// isValid(8) 提交一个查询到数据库验证连接是否有效
+			// 最长等待 8秒
+			// 8秒过长,等待一秒即可
+			if (dialect.validate(connection, 1)) {
+				borrowed(start);
+				return connection;
+			} else {
+				connection.close();
+			}
+		}
+		connection = create();
+		missed.incrementAndGet();
+		borrowed(start);
+		return connection;
+	}
+
+	private void borrowed(long start) {
+		waited.addAndGet(System.nanoTime() - start);
+		final int active = (int) (borrowed.incrementAndGet() - released.get());
+		if (active > peak.get()) {
+			peak.accumulateAndGet(active, Math::max);
+		}
+	}
+
+	/**
+	 * 新建数据库连接，不经过连接队列，连续失败将打开熔断器
+	 */
+	final Connection create() throws SQLException {
+		final Connection connection;
+		try {
+			connection = connect();
+		} catch (SQLException e) {
+			breaker.failure();
+			throw e;
+		}
+		breaker.success();
+		return connection;
+	}
+
+	/**
+	 * 隐藏连接字符串中的密码，用于异常消息
+	 */
+	static String mask(String url) {
+		return PASSWORD.matcher(url).replaceAll(match -> match.group(1) != null ? match.group(1) + "***@" : match.group(2) + "***");
+	}
+
+	/**
+	 * 新建数据库连接，不经过熔断器
+	 */
+	final Connection connect() throws SQLException {
+		final Connection connection = DriverManager.getConnection(url, user, password);
+		created.incrementAndGet();
+		return connection;
+	}
+
+	/**
+	 * 将新建的数据库连接放入连接队列，如果连接队列已满则关闭连接
+	 */
+	final void offer(Connection connection) {
+		if (!connections.offer(connection)) {
+			try {
+				connection.close();
+			} catch (SQLException e) {
+				// 忽略错误
+			}
+		}
+	}
+
+	/**
+	 * 将数据库连接放回连接队列，如果连接队列已满则关闭连接
+	 */
+	final void release(Connection connection) throws SQLException {
+		released.incrementAndGet();
+		if (connections.size() >= limit || !connections.offer(connection)) {
+			connection.close();
+		}
+	}
+
+	/**
+	 * 丢弃已关闭或状态未知的数据库连接，记为已归还
+	 */
+	final void discard(Connection connection) {
+		released.incrementAndGet();
+		if (connection != null) {
+			try {
+				connection.close();
+			} catch (SQLException e) {
+				// 忽略错误
+			}
+		}
+	}
+
+	/**
+	 * 关闭超过空闲连接上限的连接
+	 */
+	final void shrink() {
+		Connection connection;
+		while (connections.size() > limit && (connection = connections.poll()) != null) {
+			try {
+				connection.close();
+			} catch (SQLException e) {
+				// 忽略错误
+			}
+		}
+	}
+
+	/**
+	 * 获取并重置借出连接峰值
+	 */
+	final int peak() {
+		return peak.getAndSet((int) getActive());
+	}
+
+	final void setLimit(int value) {
+		limit = value;
+	}
+
+	/**
+	 * 关闭所有缓存连接
+	 */
+	final void destroy() {
+		breaker.destroy();
+		Connection connection;
+		while ((connection = connections.poll()) != null) {
+			try {
+				connection.close();
+			} catch (SQLException e) {
+				// 忽略错误
+			}
+		}
+	}
+
+	/**
+	 * 获取数据库连接字符串
+	 */
+	public String getURL() {
+		return url;
+	}
+
+	/**
+	 * 获取熔断器，用于查看熔断状态和监听状态变化
+	 */
+	public Breaker getBreaker() {
+		return breaker;
+	}
+
+	/**
+	 * 获取初始化指定的最大空闲连接数量
+	 */
+	public int getMaximum() {
+		return maximum;
+	}
+
+	/**
+	 * 获取当前空闲连接上限，未启用 {@link Tuner} 时与最大空闲连接数量相同
+	 */
+	public int getLimit() {
+		return limit;
+	}
+
+	/**
+	 * 获取累计因空闲队列为空而新建的连接数量
+	 */
+	public long getMissed() {
+		return missed.get();
+	}
+
+	/**
+	 * 获取累计获取连接的等待时间(纳秒)，包括验证和新建连接
+	 */
+	public long getWaited() {
+		return waited.get();
+	}
+
+	/**
+	 * 获取连接队列中的空闲连接数量
+	 */
+	public int getIdle() {
+		return connections.size();
+	}
+
+	/**
+	 * 获取累计新建的连接数量
+	 */
+	public long getCreated() {
+		return created.get();
+	}
+
+	/**
+	 * 获取累计借出的连接数量
+	 */
+	public long getBorrowed() {
+		return borrowed.get();
+	}
+
+	/**
+	 * 获取累计归还的连接数量
+	 */
+	public long getReleased() {
+		return released.get();
+	}
+
+	/**
+	 * 获取当前借出未归还的连接数量
+	 */
+	public long getActive() {
+		return borrowed.get() - released.get();
+	}
+}
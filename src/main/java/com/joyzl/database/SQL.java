@@ -0,0 +1,44 @@
+/*
+ * Copyright © 2017-2025 重庆骄智科技有限公司.
+ * 本软件根据 Apache License 2.0 开源，详见 LICENSE 文件。
+ */
+package com.joyzl.database;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标记命名参数SQL常量，由注解处理器在编译期分析
+ * <p>
+ * 注解处理器为每个具有此注解的类生成 XxxSQL 类，包含编译期分析的 {@link NamedSQL}、以其获取 {@link Statement} 的 instanceXxx() 方法和参数绑定方法；
+ * SQL语法和参数名错误在编译时报告，生成的类加载后 {@link NamedSQL#get(String)} 不再分析这些SQL语句。
+ * </p>
+ *
+ * <pre>
+ * <code>
+ * public class Users {
+ *     &#64;SQL(User.class)
+ *     public final static String UPDATE_NAME = "UPDATE `users` SET `name`=?name WHERE `id`=?id";
+ * }
+ *
+ * // 生成的 UsersSQL，以预编译的 NamedSQL 获取 Statement
+ * try (Statement statement = UsersSQL.instanceUpdateName()) {
+ *     UsersSQL.bindUpdateName(statement, user);
+ *     statement.execute();
+ * }
+ * </code>
+ * </pre>
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.FIELD)
+public @interface SQL {
+
+	/**
+	 * 参数对象类型(记录或具有getter的类)，指定时编译期检查每个参数都有对应的属性并生成绑定方法
+	 */
+	Class<?> value() default Void.class;
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright © 2017-2025 重庆骄智科技有限公司.
+ * 本软件根据 Apache License 2.0 开源，详见 LICENSE 文件。
+ */
+package com.joyzl.database;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * 分片，按分片键参数值选择数据库连接池
+ * <p>
+ * SQL语句中与分片键同名的参数值决定语句在哪个分片执行，分片键参数必须在其它参数之前设置；
+ * 没有分片键参数的查询在所有分片并行执行，结果集通过 {@link Statement#nextRecord()} 依次合并读取；
+ * 没有分片键参数的写入语句将抛出异常，需要在所有分片执行的语句(例如建表)应通过 {@link #broadcast(String)} 明确指定。
+ * 每个分片具有独立的连接池和统计，参考 {@link #getPools()}。
+ * </p>
+ *
+ * <pre>
+ * <code>
+ * Sharding users = Database.sharding(Database.MYSQL, "id", Sharding.hash(), urls, user, password, 16);
+ *
+ * // 按分片键选择分片
+ * try (Statement statement = users.instance("SELECT * FROM `users` WHERE `id`=?id")) {
+ *     statement.setValue("id", 10);
+ *     if (statement.execute()) {
+ *         ...
+ *     }
+ * }
+ *
+ * // 在所有分片执行并合并结果集
+ * try (Statement statement = users.instance("SELECT * FROM `users` WHERE `enable`=?enable")) {
+ *     statement.setValue("enable", true);
+ *     if (statement.execute()) {
+ *         while (statement.nextRecord()) {
+ *             ...
+ *         }
+ *     }
+ * }
+ * </code>
+ * </pre>
+ */
+public final class Sharding {
+
+	/**
+	 * 分片策略
+	 */
+	public interface Strategy {
+		/**
+		 * 根据分片键值选择分片
+		 *
+		 * @param value 分片键值，不会为 null
+		 * @param shards 分片数量
+		 * @return 分片索引 0~shards-1
+		 */
+		int select(Object value, int shards);
+	}
+
+	/**
+	 * 哈希分片，整数值按取模选择分片，其它值按 hashCode() 取模选择分片
+	 *
+	 * @return Strategy
+	 */
+	public static Strategy hash() {
+		return (value, shards) -> {
+			if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte || value instanceof BigInteger) {
+				return (int) Math.floorMod(((Number) value).longValue(), (long) shards);
+			}
+			return Math.floorMod(value.hashCode(), shards);
+		};
+	}
+
+	/**
+	 * 范围分片，按整数值所在范围选择分片<br>
+	 * 例如 range(1000, 2000) 将 &lt;1000 分配到分片0，1000~1999 分配到分片1，&gt;=2000 分配到分片2
+	 *
+	 * @param bounds 递增的分界值，数量为分片数量减1
+	 * @return Strategy
+	 */
+	public static Strategy range(long... bounds) {
+		final long[] b = bounds.clone();
+		for (int index = 1; index < b.length; index++) {
+			if (b[index] <= b[index - 1]) {
+				throw new IllegalArgumentException("分界值必须递增:" + Arrays.toString(b));
+			}
+		}
+		return (value, shards) -> {
+			if (b.length != shards - 1) {
+				throw new IllegalStateException("分界值数量与分片数量不匹配:" + b.length + "/" + shards);
+			}
+			final long v = ((Number) value).longValue();
+			int index = 0;
+			while (index < b.length && v >= b[index]) {
+				index++;
+			}
+			return index;
+		};
+	}
+
+	////////////////////////////////////////////////////////////////////////////////
+
+	private final String key;
+	private final Strategy strategy;
+	private final Pool[] pools;
+
+	Sharding(String key, Strategy strategy, Pool[] pools) {
+		if (pools.length == 0) {
+			throw new IllegalArgumentException("至少需要一个分片");
+		}
+		this.key = key;
+		this.strategy = strategy;
+		this.pools = pools;
+	}
+
+	/**
+	 * 实例化数据访问对象<br>
+	 * 具有分片键参数的语句在分片键参数设置时选择分片，分片键参数必须最先设置；
+	 * 没有分片键参数的查询在所有分片并行执行并合并结果集，没有分片键参数的其它语句将抛出异常
+	 *
+	 * @param sql 命名参数SQL语句
+	 * @return Statement 实例
+	 */
+	public Statement instance(String sql) {
+		return new Statement(sql, this, false);
+	}
+
+	/**
+	 * 实例化在所有分片执行的数据访问对象，用于建表或需要在每个分片执行的更新<br>
+	 * 参数和批处理设置到每个分片，{@link Statement#getUpdatedCount()} 为各分片之和
+	 *
+	 * @param sql 命名参数SQL语句
+	 * @return Statement 实例
+	 */
+	public Statement broadcast(String sql) {
+		return new Statement(sql, this, true);
+	}
+
+	/**
+	 * 根据分片键值选择连接池
+	 */
+	final Pool select(Object value) {
+		if (value == null) {
+			throw new IllegalArgumentException("分片键值不能为 null");
+		}
+		final int index = strategy.select(value, pools.length);
+		if (index < 0 || index >= pools.length) {
+			throw new IllegalStateException("分片索引超出范围:" + index);
+		}
+		return pools[index];
+	}
+
+	final Pool[] pools() {
+		return pools;
+	}
+
+	final void destroy() {
+		for (Pool pool : pools) {
+			pool.destroy();
+		}
+	}
+
+	/**
+	 * 获取分片键参数名
+	 */
+	public String getKey() {
+		return key;
+	}
+
+	/**
+	 * 获取各分片的连接池，用于查看连接使用情况
+	 */
+	public Pool[] getPools() {
+		return pools.clone();
+	}
+}
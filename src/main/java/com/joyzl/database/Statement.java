@@ -1 +1 @@
-/* * Copyright © 2017-2025 重庆骄智科技有限公司. * 本软件根据 Apache License 2.0 开源，详见 LICENSE 文件。 */package com.joyzl.database;import java.io.Closeable;import java.math.BigDecimal;import java.sql.CallableStatement;import java.sql.Connection;import java.sql.Date;import java.sql.PreparedStatement;import java.sql.ResultSet;import java.sql.SQLException;import java.sql.Time;import java.sql.Timestamp;import java.sql.Types;import java.time.LocalDate;import java.time.LocalDateTime;import java.time.LocalTime;/** * 数据库操作状态对象 * * @author ZhangXi 2020年3月21日 * */public class Statement implements Closeable {	private final NamedSQL namedsql;	private final PreparedStatement statement;	private ResultSet result;	private int[] results;	private boolean batch;	private boolean error;	// 事务子对象,	private boolean share;	/**	 * 初始化数据库操作状态对象	 *	 * @param sql 命名参数SQL	 * @param transaction 是否开启事务	 */	public Statement(String sql, boolean transaction) {		namedsql = NamedSQL.get(sql);		try {			final Connection connection = Database.getConnection();			// 注意区分当前的transaction和Statement.transaction成员			// 参数用于指示时候开启数据库链路的事务			// Statement.transaction用于标记子对象具有事务，以便子对象释放时不会意外关闭/回收数据库链路			connection.setAutoCommit(!transaction);			if (namedsql.isCall()) {				statement = connection.prepareCall(namedsql.getExcuteSQL());			} else {				statement = connection.prepareStatement(namedsql.getExcuteSQL(), java.sql.Statement.RETURN_GENERATED_KEYS);			}		} catch (SQLException e) {			error = true;			throw new RuntimeException(e);		}	}	/**	 * 初始化数据库操作状态对象	 *	 * @param sql 命名参数SQL	 * @param statement 关联的 {@link Statement} 如果开启了事务新的 {@link Statement}	 *            也将开启事务。	 */	public Statement(String sql, Statement statement) {		namedsql = NamedSQL.get(sql);		try {			final Connection connection = statement.statement.getConnection();			if (namedsql.isCall()) {				this.statement = connection.prepareCall(namedsql.getExcuteSQL());			} else {				this.statement = connection.prepareStatement(namedsql.getExcuteSQL(), java.sql.Statement.RETURN_GENERATED_KEYS);			}			// 事务状态由connection.getAutoCommit()标识			// share表示此数据库链路有多个对象使用			share = true;		} catch (SQLException e) {			error = true;			throw new RuntimeException(e);		}	}	/**	 * 添加一次批处理队列<br>	 * 必须启用事务，只能执行 UPDATE / INSERT / DELETE	 */	public final void batch() {		try {			statement.addBatch();			batch = true;		} catch (SQLException e) {			throw new RuntimeException(e);		}		// statement.executeBatch();		// statement.clearBatch();	}	/**	 * 请求数据库执行SQL	 *	 * @return true /false 执行成功/执行失败	 */	public final boolean execute() {		try {			if (result != null) {				// 多次执行时自动关闭上一次的结果集				result.close();				result = null;			}			if (batch) {				results = statement.executeBatch();				// 批量处理时无须对每个执行的影响数量进行判断				return results != null && results.length > 0;			} else {				if (namedsql.isCall()) {					// 注册输出参数					CallableStatement callable = (CallableStatement) statement;					try {						for (int index = 0; index < namedsql.types.length; index++) {							if (namedsql.types[index] != null) {								callable.registerOutParameter(index + 1, namedsql.types[index]);							}						}					} catch (SQLException ex) {						throw new RuntimeException(ex);					}				}				// execute()只在第一个返回为结果集的时候为真				if (statement.execute()) {					return true;				} else {					return statement.getUpdateCount() > 0;				}			}		} catch (Exception ex) {			error = true;			try {				if (!statement.getConnection().getAutoCommit()) {					// 如果禁用了自动提交则执行回滚					statement.getConnection().rollback();				}			} catch (SQLException e) {				throw new RuntimeException(e);			}			throw new RuntimeException(ex);		}	}	/**	 * 获取执行SQL后更新的记录数量	 *	 * @return 0 没有记录被更新 / 1~n 更新的记录数 / -1 如果执行的是查询	 */	public final int getUpdatedCount() {		if (batch) {			if (results == null) {				return 0;			}			int count = 0;			for (int index = 0; index < results.length; index++) {				count += results[index];			}			return count;		} else {			try {				return statement.getUpdateCount();			} catch (SQLException ex) {				error = true;				throw new RuntimeException(ex);			}		}	}	/**	 * 获取执行批量SQL后更新的记录数量	 * 	 * @return int[] 按批量执行顺序返回受影响行数 / null 如果未执行过批量处理	 */	public final int[] getUpdatedBatchs() {		return results;	}	/**	 * 如果执行插入，则移动到下一条记录的自动ID	 *	 * @return 有ID可读 true / false 没有ID可读	 */	public final boolean nextAutoId() {		try {			if (result == null) {				result = statement.getGeneratedKeys();				if (result == null) {					return false;				}			}			if (result.next()) {				return true;			} else {				result.close();				result = null;				return false;			}		} catch (SQLException ex) {			error = true;			throw new RuntimeException(ex);		}	}	/**	 * 获取创建新记录时数据库生成的记录ID	 *	 * @return 只有具有自增id特性的数据插入操作才会返回有效id / 0 未返回有效id	 */	public final int getAutoId() {		try {			if (result == null) {				result = statement.getGeneratedKeys();				if (result == null) {					return 0;				}				if (result.next()) {					return result.getInt(1);				}			} else {				return result.getInt(1);			}		} catch (SQLException ex) {			error = true;			throw new RuntimeException(ex);		}		return 0;	}	/**	 * 如果执行查询，则移动到下一条记录	 *	 * @return 有记录可读 true / false 没有记录可读	 */	public final boolean nextRecord() {		try {			if (result == null) {				result = statement.getResultSet();				if (result == null) {					return false;				}			}			if (result.next()) {				return true;			} else {				result.close();				result = null;				return false;			}		} catch (SQLException ex) {			error = true;			throw new RuntimeException(ex);		}	}	// public final String names() {	// try {	//	// result.getMetaData().	// statement.getMetaData();	// } catch (SQLException e) {	// // TODO Auto-generated catch block	// e.printStackTrace();	// }	// }	/**	 * 关闭数据库操作对象，ResultSet和Statement被关闭，Connection对象被放回连接池	 */	@Override	public final void close() {		try {			final Connection connection = statement.getConnection();			if (connection.isClosed())				return;			if (!connection.getAutoCommit()) {				// 1 成功执行自动提交				if (!error) {					connection.commit();				}				connection.setAutoCommit(true);			}			// 关闭statement将自动关闭 ResultSet 如果有			statement.close();			if (!share) {				// 事务情况下，会有多个Statement实例，通过此标志避免connection被多次缓存				if (!Database.CONNECTIONS.offer(connection)) {					connection.close();				}			}		} catch (SQLException e) {			throw new RuntimeException(e);		}	}	/**	 * 设置SQL参数值	 *	 * @param name 参数名称	 * @param value 参数值 / null	 */	public final void setValue(String name, byte[] value) {		try {			for (int index = 0; index < namedsql.names.length; index++) {				if (namedsql.names[index].equals(name)) {					if (value == null) {						statement.setNull(index + 1, Types.VARBINARY);					} else {						statement.setBytes(index + 1, value);					}				}			}		} catch (SQLException ex) {			throw new RuntimeException(ex);		}	}	/**	 * 设置SQL参数值	 *	 * @param name 参数名称	 * @param value 参数值	 */	public final void setValue(String name, byte value) {		try {			for (int index = 0; index < namedsql.names.length; index++) {				if (namedsql.names[index].equals(name)) {					statement.setByte(index + 1, value);				}			}		} catch (SQLException ex) {			throw new RuntimeException(ex);		}	}	/**	 * 设置SQL参数值	 *	 * @param name 参数名称	 * @param value 参数值 / null	 */	public final void setValue(String name, Byte value) {		try {			for (int index = 0; index < namedsql.names.length; index++) {				if (namedsql.names[index].equals(name)) {					if (value == null) {						statement.setNull(index + 1, Types.BOOLEAN);					} else {						statement.setByte(index + 1, value);					}				}			}		} catch (SQLException ex) {			throw new RuntimeException(ex);		}	}	/**	 * 设置SQL参数值	 *	 * @param name 参数名称	 * @param value 参数值	 */	public final void setValue(String name, boolean value) {		try {			for (int index = 0; index < namedsql.names.length; index++) {				if (namedsql.names[index].equals(name)) {					statement.setBoolean(index + 1, value);				}			}		} catch (SQLException ex) {			throw new RuntimeException(ex);		}	}	/**	 * 设置SQL参数值	 *	 * @param name 参数名称	 * @param value 参数值 / null	 */	public final void setValue(String name, Boolean value) {		try {			for (int index = 0; index < namedsql.names.length; index++) {				if (namedsql.names[index].equals(name)) {					if (value == null) {						statement.setNull(index + 1, Types.BOOLEAN);					} else {						statement.setBoolean(index + 1, value);					}				}			}		} catch (SQLException ex) {			throw new RuntimeException(ex);		}	}	/**	 * 设置SQL参数值	 *	 * @param name 参数名称	 * @param value 参数值	 */	public final void setValue(String name, short value) {		try {			for (int index = 0; index < namedsql.names.length; index++) {				if (namedsql.names[index].equals(name)) {					statement.setShort(index + 1, value);				}			}		} catch (SQLException ex) {			throw new RuntimeException(ex);		}	}	/**	 * 设置SQL参数值	 *	 * @param name 参数名称	 * @param value 参数值 / null	 */	public final void setValue(String name, Short value) {		try {			for (int index = 0; index < namedsql.names.length; index++) {				if (namedsql.names[index].equals(name)) {					if (value == null) {						statement.setNull(index + 1, Types.SMALLINT);					} else {						statement.setShort(index + 1, value);					}				}			}		} catch (SQLException ex) {			throw new RuntimeException(ex);		}	}	/**	 * 设置SQL参数值	 *	 * @param name 参数名称	 * @param value 参数值	 */	public final void setValue(String name, int value) {		try {			for (int index = 0; index < namedsql.names.length; index++) {				if (namedsql.names[index].equals(name)) {					statement.setInt(index + 1, value);				}			}		} catch (SQLException ex) {			throw new RuntimeException(ex);		}	}	/**	 * 设置SQL参数值	 *	 * @param name 参数名称	 * @param value 参数值 / null	 */	public final void setValue(String name, Integer value) {		try {			for (int index = 0; index < namedsql.names.length; index++) {				if (namedsql.names[index].equals(name)) {					if (value == null) {						statement.setNull(index + 1, Types.INTEGER);					} else {						statement.setInt(index + 1, value);					}				}			}		} catch (SQLException ex) {			throw new RuntimeException(ex);		}	}	/**	 * 设置SQL参数值	 *	 * @param name 参数名称	 * @param value 参数值	 */	public final void setValue(String name, long value) {		try {			for (int index = 0; index < namedsql.names.length; index++) {				if (namedsql.names[index].equals(name)) {					statement.setLong(index + 1, value);				}			}		} catch (SQLException ex) {			throw new RuntimeException(ex);		}	}	/**	 * 设置SQL参数值	 *	 * @param name 参数名称	 * @param value 参数值 / null	 */	public final void setValue(String name, Long value) {		try {			for (int index = 0; index < namedsql.names.length; index++) {				if (namedsql.names[index].equals(name)) {					if (value == null) {						statement.setNull(index + 1, Types.BIGINT);					} else {						statement.setLong(index + 1, value);					}				}			}		} catch (SQLException ex) {			throw new RuntimeException(ex);		}	}	/**	 * 设置SQL参数值	 *	 * @param name 参数名称	 * @param value 参数值	 */	public final void setValue(String name, float value) {		try {			for (int index = 0; index < namedsql.names.length; index++) {				if (namedsql.names[index].equals(name)) {					statement.setFloat(index + 1, value);				}			}		} catch (SQLException ex) {			throw new RuntimeException(ex);		}	}	/**	 * 设置SQL参数值	 *	 * @param name 参数名称	 * @param value 参数值 / null	 */	public final void setValue(String name, Float value) {		try {			for (int index = 0; index < namedsql.names.length; index++) {				if (namedsql.names[index].equals(name)) {					if (value == null) {						statement.setNull(index + 1, Types.FLOAT);					} else {						statement.setFloat(index + 1, value);					}				}			}		} catch (SQLException ex) {			throw new RuntimeException(ex);		}	}	/**	 * 设置SQL参数值	 *	 * @param name 参数名称	 * @param value 参数值	 */	public final void setValue(String name, double value) {		try {			for (int index = 0; index < namedsql.names.length; index++) {				if (namedsql.names[index].equals(name)) {					statement.setDouble(index + 1, value);				}			}		} catch (SQLException ex) {			throw new RuntimeException(ex);		}	}	/**	 * 设置SQL参数值	 *	 * @param name 参数名称	 * @param value 参数值 / null	 */	public final void setValue(String name, Double value) {		try {			for (int index = 0; index < namedsql.names.length; index++) {				if (namedsql.names[index].equals(name)) {					if (value == null) {						statement.setNull(index + 1, Types.DOUBLE);					} else {						statement.setDouble(index + 1, value);					}				}			}		} catch (SQLException ex) {			throw new RuntimeException(ex);		}	}	/**	 * 设置SQL参数值	 *	 * @param name 参数名称	 * @param value 参数值 / null	 */	public final void setValue(String name, String value) {		try {			for (int index = 0; index < namedsql.names.length; index++) {				if (namedsql.names[index].equals(name)) {					if (value == null) {						statement.setNull(index + 1, Types.DECIMAL);					} else {						statement.setString(index + 1, value);					}				}			}		} catch (SQLException ex) {			throw new RuntimeException(ex);		}	}	/**	 * 设置SQL参数值	 *	 * @param name 参数名称	 * @param value 参数值 / null	 */	public final void setValue(String name, java.util.Date value) {		final java.sql.Date v = value == null ? null : new java.sql.Date(value.getTime());		try {			for (int index = 0; index < namedsql.names.length; index++) {				if (namedsql.names[index].equals(name)) {					if (value == null) {						statement.setNull(index + 1, Types.DATE);					} else {						statement.setDate(index + 1, v);					}				}			}		} catch (SQLException ex) {			throw new RuntimeException(ex);		}	}	/**	 * 设置SQL参数值	 *	 * @param name 参数名称	 * @param value 参数值 / null	 */	public final void setValue(String name, LocalTime value) {		try {			for (int index = 0; index < namedsql.names.length; index++) {				if (namedsql.names[index].equals(name)) {					if (value == null) {						statement.setNull(index + 1, Types.TIME);					} else {						statement.setTime(index + 1, Time.valueOf(value));					}				}			}		} catch (SQLException ex) {			throw new RuntimeException(ex);		}	}	/**	 * 设置SQL参数值	 *	 * @param name 参数名称	 * @param value 参数值 / null	 */	public final void setValue(String name, LocalDate value) {		try {			for (int index = 0; index < namedsql.names.length; index++) {				if (namedsql.names[index].equals(name)) {					if (value == null) {						statement.setNull(index + 1, Types.DATE);					} else {						statement.setDate(index + 1, Date.valueOf(value));					}				}			}		} catch (SQLException ex) {			throw new RuntimeException(ex);		}	}	/**	 * 设置SQL参数值	 *	 * @param name 参数名称	 * @param value 参数值 / null	 */	public final void setValue(String name, LocalDateTime value) {		try {			for (int index = 0; index < namedsql.names.length; index++) {				if (namedsql.names[index].equals(name)) {					if (value == null) {						statement.setNull(index + 1, Types.TIMESTAMP);					} else {						statement.setTimestamp(index + 1, Timestamp.valueOf(value));					}				}			}		} catch (SQLException ex) {			throw new RuntimeException(ex);		}	}	/**	 * 设置SQL参数值	 *	 * @param name 参数名称	 * @param value 参数值 / null	 */	public final void setValue(String name, BigDecimal value) {		try {			for (int index = 0; index < namedsql.names.length; index++) {				if (namedsql.names[index].equals(name)) {					if (value == null) {						statement.setNull(index + 1, Types.DECIMAL);					} else {						statement.setBigDecimal(index + 1, value);					}				}			}		} catch (SQLException ex) {			throw new RuntimeException(ex);		}	}	/**	 * 获取当前记录索引(1~0)	 * 	 * @return 0 无记录	 */	public final int getIndex() {		try {			if (result == null) {				return 0;			}			return result.getRow();		} catch (SQLException e) {			throw new RuntimeException(e);		}	}	/**	 * 读取当前记录值	 *	 * @param name 字段名	 * @param default_value 值为null时的替代值	 * @return 指定字段值 / default_value	 */	public final byte[] getValue(String name, byte[] default_value) {		try {			if (result == null) {				if (namedsql.isCall()) {					CallableStatement callable = (CallableStatement) statement;					for (int index = 0; index < namedsql.names.length; index++) {						if (namedsql.names[index].equals(name) && namedsql.types[index] != null) {							byte[] value = callable.getBytes(index + 1);							if (callable.wasNull()) {								return default_value;							}							return value;						}					}				}				throw new SQLException("没有结果集，也没有可返回的参数");			}			byte[] value = result.getBytes(name);			if (result.wasNull()) {				return default_value;			}			return value;		} catch (SQLException e) {			throw new RuntimeException(e);		}	}	/**	 * 读取当前记录值	 *	 * @param name 字段名	 * @param default_value 值为null时的替代值	 * @return 指定字段值 / default_value	 */	public final boolean getValue(String name, boolean default_value) {		try {			if (result == null) {				if (namedsql.isCall()) {					CallableStatement callable = (CallableStatement) statement;					for (int index = 0; index < namedsql.names.length; index++) {						if (namedsql.names[index].equals(name) && namedsql.types[index] != null) {							boolean value = callable.getBoolean(index + 1);							if (callable.wasNull()) {								return default_value;							}							return value;						}					}				}				throw new SQLException("没有结果集，也没有可返回的参数");			}			boolean value = result.getBoolean(name);			if (result.wasNull()) {				return default_value;			}			return value;		} catch (SQLException e) {			throw new RuntimeException(e);		}	}	/**	 * 读取当前记录值	 *	 * @param name 字段名	 * @param default_value 值为null时的替代值	 * @return 指定字段值 / default_value	 */	public final Boolean getValue(String name, Boolean default_value) {		try {			if (result == null) {				if (namedsql.isCall()) {					CallableStatement callable = (CallableStatement) statement;					for (int index = 0; index < namedsql.names.length; index++) {						if (namedsql.names[index].equals(name) && namedsql.types[index] != null) {							boolean value = callable.getBoolean(index + 1);							if (callable.wasNull()) {								return default_value;							}							return value;						}					}				}				throw new SQLException("没有结果集，也没有可返回的参数");			}			boolean value = result.getBoolean(name);			if (result.wasNull()) {				return default_value;			}			return value;		} catch (SQLException e) {			throw new RuntimeException(e);		}	}	/**	 * 读取当前记录值	 *	 * @param name 字段名	 * @param default_value 值为null时的替代值	 * @return 指定字段值 / default_value	 */	public final short getValue(String name, short default_value) {		try {			if (result == null) {				if (namedsql.isCall()) {					CallableStatement callable = (CallableStatement) statement;					for (int index = 0; index < namedsql.names.length; index++) {						if (namedsql.names[index].equals(name) && namedsql.types[index] != null) {							short value = callable.getShort(index + 1);							if (callable.wasNull()) {								return default_value;							}							return value;						}					}				}				throw new SQLException("没有结果集，也没有可返回的参数");			}			short value = result.getShort(name);			if (result.wasNull()) {				return default_value;			}			return value;		} catch (SQLException e) {			throw new RuntimeException(e);		}	}	/**	 * 读取当前记录值	 *	 * @param name 字段名	 * @param default_value 值为null时的替代值	 * @return 指定字段值 / default_value	 */	public final Short getValue(String name, Short default_value) {		try {			if (result == null) {				if (namedsql.isCall()) {					CallableStatement callable = (CallableStatement) statement;					for (int index = 0; index < namedsql.names.length; index++) {						if (namedsql.names[index].equals(name) && namedsql.types[index] != null) {							short value = callable.getShort(index + 1);							if (callable.wasNull()) {								return default_value;							}							return value;						}					}				}				throw new SQLException("没有结果集，也没有可返回的参数");			}			short value = result.getShort(name);			if (result.wasNull()) {				return default_value;			}			return value;		} catch (SQLException e) {			throw new RuntimeException(e);		}	}	/**	 * 读取当前记录值	 *	 * @param name 字段名	 * @param default_value 值为null时的替代值	 * @return 指定字段值 / default_value	 */	public final int getValue(String name, int default_value) {		try {			if (result == null) {				if (namedsql.isCall()) {					CallableStatement callable = (CallableStatement) statement;					for (int index = 0; index < namedsql.names.length; index++) {						if (namedsql.names[index].equals(name) && namedsql.types[index] != null) {							int value = callable.getInt(index + 1);							if (callable.wasNull()) {								return default_value;							}							return value;						}					}				}				throw new SQLException("没有结果集，也没有可返回的参数");			}			int value = result.getInt(name);			if (result.wasNull()) {				return default_value;			}			return value;		} catch (SQLException e) {			throw new RuntimeException(e);		}	}	/**	 * 读取当前记录值	 *	 * @param name 字段名	 * @param default_value 值为null时的替代值	 * @return 指定字段值 / default_value	 */	public final Integer getValue(String name, Integer default_value) {		try {			if (result == null) {				if (namedsql.isCall()) {					CallableStatement callable = (CallableStatement) statement;					for (int index = 0; index < namedsql.names.length; index++) {						if (namedsql.names[index].equals(name) && namedsql.types[index] != null) {							int value = callable.getInt(index + 1);							if (callable.wasNull()) {								return default_value;							}							return value;						}					}				}				throw new SQLException("没有结果集，也没有可返回的参数");			}			int value = result.getInt(name);			if (result.wasNull()) {				return default_value;			}			return value;		} catch (SQLException e) {			throw new RuntimeException(e);		}	}	/**	 * 读取当前记录值	 *	 * @param name 字段名	 * @param default_value 值为null时的替代值	 * @return 指定字段值 / default_value	 */	public final long getValue(String name, long default_value) {		try {			if (result == null) {				if (namedsql.isCall()) {					CallableStatement callable = (CallableStatement) statement;					for (int index = 0; index < namedsql.names.length; index++) {						if (namedsql.names[index].equals(name) && namedsql.types[index] != null) {							long value = callable.getLong(index + 1);							if (callable.wasNull()) {								return default_value;							}							return value;						}					}				}				throw new SQLException("没有结果集，也没有可返回的参数");			}			long value = result.getLong(name);			if (result.wasNull()) {				return default_value;			}			return value;		} catch (SQLException e) {			throw new RuntimeException(e);		}	}	/**	 * 读取当前记录值	 *	 * @param name 字段名	 * @param default_value 值为null时的替代值	 * @return 指定字段值 / default_value	 */	public final Long getValue(String name, Long default_value) {		try {			if (result == null) {				if (namedsql.isCall()) {					CallableStatement callable = (CallableStatement) statement;					for (int index = 0; index < namedsql.names.length; index++) {						if (namedsql.names[index].equals(name) && namedsql.types[index] != null) {							long value = callable.getLong(index + 1);							if (callable.wasNull()) {								return default_value;							}							return value;						}					}				}				throw new SQLException("没有结果集，也没有可返回的参数");			}			long value = result.getLong(name);			if (result.wasNull()) {				return default_value;			}			return value;		} catch (SQLException e) {			throw new RuntimeException(e);		}	}	/**	 * 读取当前记录值	 *	 * @param name 字段名	 * @param default_value 值为null时的替代值	 * @return 指定字段值 / default_value	 */	public final float getValue(String name, float default_value) {		try {			if (result == null) {				if (namedsql.isCall()) {					CallableStatement callable = (CallableStatement) statement;					for (int index = 0; index < namedsql.names.length; index++) {						if (namedsql.names[index].equals(name) && namedsql.types[index] != null) {							float value = callable.getFloat(index + 1);							if (callable.wasNull()) {								return default_value;							}							return value;						}					}				}				throw new SQLException("没有结果集，也没有可返回的参数");			}			float value = result.getFloat(name);			if (result.wasNull()) {				return default_value;			}			return value;		} catch (SQLException e) {			throw new RuntimeException(e);		}	}	/**	 * 读取当前记录值	 *	 * @param name 字段名	 * @param default_value 值为null时的替代值	 * @return 指定字段值 / default_value	 */	public final Float getValue(String name, Float default_value) {		try {			if (result == null) {				if (namedsql.isCall()) {					CallableStatement callable = (CallableStatement) statement;					for (int index = 0; index < namedsql.names.length; index++) {						if (namedsql.names[index].equals(name) && namedsql.types[index] != null) {							float value = callable.getFloat(index + 1);							if (callable.wasNull()) {								return default_value;							}							return value;						}					}				}				throw new SQLException("没有结果集，也没有可返回的参数");			}			float value = result.getFloat(name);			if (result.wasNull()) {				return default_value;			}			return value;		} catch (SQLException e) {			throw new RuntimeException(e);		}	}	/**	 * 读取当前记录值	 *	 * @param name 字段名	 * @param default_value 值为null时的替代值	 * @return 指定字段值 / default_value	 */	public final double getValue(String name, double default_value) {		try {			if (result == null) {				if (namedsql.isCall()) {					CallableStatement callable = (CallableStatement) statement;					for (int index = 0; index < namedsql.names.length; index++) {						if (namedsql.names[index].equals(name) && namedsql.types[index] != null) {							double value = callable.getDouble(index + 1);							if (callable.wasNull()) {								return default_value;							}							return value;						}					}				}				throw new SQLException("没有结果集，也没有可返回的参数");			}			double value = result.getDouble(name);			if (result.wasNull()) {				return default_value;			}			return value;		} catch (SQLException e) {			throw new RuntimeException(e);		}	}	/**	 * 读取当前记录值	 *	 * @param name 字段名	 * @param default_value 值为null时的替代值	 * @return 指定字段值 / default_value	 */	public final Double getValue(String name, Double default_value) {		try {			if (result == null) {				if (namedsql.isCall()) {					CallableStatement callable = (CallableStatement) statement;					for (int index = 0; index < namedsql.names.length; index++) {						if (namedsql.names[index].equals(name) && namedsql.types[index] != null) {							double value = callable.getDouble(index + 1);							if (callable.wasNull()) {								return default_value;							}							return value;						}					}				}				throw new SQLException("没有结果集，也没有可返回的参数");			}			double value = result.getDouble(name);			if (result.wasNull()) {				return default_value;			}			return value;		} catch (SQLException e) {			throw new RuntimeException(e);		}	}	/**	 * 读取当前记录值	 *	 * @param name 字段名	 * @param default_value 值为null时的替代值	 * @return 指定字段值 / default_value	 */	public final String getValue(String name, String default_value) {		try {			if (result == null) {				if (namedsql.isCall()) {					CallableStatement callable = (CallableStatement) statement;					for (int index = 0; index < namedsql.names.length; index++) {						if (namedsql.names[index].equals(name) && namedsql.types[index] != null) {							String value = callable.getString(index + 1);							if (callable.wasNull()) {								return default_value;							}							return value;						}					}				}				throw new SQLException("没有结果集，也没有可返回的参数");			}			String value = result.getString(name);			if (result.wasNull()) {				return default_value;			}			return value;		} catch (SQLException e) {			throw new RuntimeException(e);		}	}	/**	 * 读取当前记录值	 *	 * @param name 字段名	 * @param default_value 值为null时的替代值	 * @return 指定字段值 / default_value	 */	public final java.util.Date getValue(String name, java.util.Date default_value) {		try {			if (result == null) {				if (namedsql.isCall()) {					CallableStatement callable = (CallableStatement) statement;					for (int index = 0; index < namedsql.names.length; index++) {						if (namedsql.names[index].equals(name) && namedsql.types[index] != null) {							java.util.Date value = callable.getDate(index + 1);							if (callable.wasNull()) {								return default_value;							}							return value;						}					}				}				throw new SQLException("没有结果集，也没有可返回的参数");			}			java.util.Date value = result.getDate(name);			if (result.wasNull()) {				return default_value;			}			return value;		} catch (SQLException e) {			throw new RuntimeException(e);		}	}	/**	 * 读取当前记录值	 *	 * @param name 字段名	 * @param default_value 值为null时的替代值	 * @return 指定字段值 / default_value	 */	public final LocalTime getValue(String name, LocalTime default_value) {		try {			if (result == null) {				if (namedsql.isCall()) {					CallableStatement callable = (CallableStatement) statement;					for (int index = 0; index < namedsql.names.length; index++) {						if (namedsql.names[index].equals(name) && namedsql.types[index] != null) {							Time value = callable.getTime(index + 1);							if (callable.wasNull()) {								return default_value;							}							return value.toLocalTime();						}					}				}				throw new SQLException("没有结果集，也没有可返回的参数");			}			Time value = result.getTime(name);			if (result.wasNull()) {				return default_value;			}			return value.toLocalTime();		} catch (SQLException e) {			throw new RuntimeException(e);		}	}	/**	 * 读取当前记录值	 *	 * @param name 字段名	 * @param default_value 值为null时的替代值	 * @return 指定字段值 / default_value	 */	public final LocalDate getValue(String name, LocalDate default_value) {		try {			if (result == null) {				if (namedsql.isCall()) {					CallableStatement callable = (CallableStatement) statement;					for (int index = 0; index < namedsql.names.length; index++) {						if (namedsql.names[index].equals(name) && namedsql.types[index] != null) {							Date value = callable.getDate(index + 1);							if (callable.wasNull()) {								return default_value;							}							return value.toLocalDate();						}					}				}				throw new SQLException("没有结果集，也没有可返回的参数");			}			Date value = result.getDate(name);			if (result.wasNull()) {				return default_value;			}			return value.toLocalDate();		} catch (SQLException e) {			throw new RuntimeException(e);		}	}	/**	 * 读取当前记录值	 *	 * @param name 字段名	 * @param default_value 值为null时的替代值	 * @return 指定字段值 / default_value	 */	public final LocalDateTime getValue(String name, LocalDateTime default_value) {		try {			if (result == null) {				if (namedsql.isCall()) {					CallableStatement callable = (CallableStatement) statement;					for (int index = 0; index < namedsql.names.length; index++) {						if (namedsql.names[index].equals(name) && namedsql.types[index] != null) {							Timestamp value = callable.getTimestamp(index + 1);							if (callable.wasNull()) {								return default_value;							}							return value.toLocalDateTime();						}					}				}				throw new SQLException("没有结果集，也没有可返回的参数");			}			Timestamp value = result.getTimestamp(name);			if (result.wasNull()) {				return default_value;			}			return value.toLocalDateTime();		} catch (SQLException e) {			throw new RuntimeException(e);		}	}	/**	 * 读取当前记录值	 *	 * @param name 字段名	 * @param default_value 值为null时的替代值	 * @return 指定字段值 / default_value	 */	public final BigDecimal getValue(String name, BigDecimal default_value) {		try {			if (result == null) {				if (namedsql.isCall()) {					CallableStatement callable = (CallableStatement) statement;					for (int index = 0; index < namedsql.names.length; index++) {						if (namedsql.names[index].equals(name) && namedsql.types[index] != null) {							BigDecimal value = callable.getBigDecimal(index + 1);							if (callable.wasNull()) {								return default_value;							}							return value;						}					}				}				throw new SQLException("没有结果集，也没有可返回的参数");			}			BigDecimal value = result.getBigDecimal(name);			if (result.wasNull()) {				return default_value;			}			return value;		} catch (SQLException e) {			throw new RuntimeException(e);		}	}	/**	 * 获取命名SQL	 */	public NamedSQL getNamedSQL() {		return namedsql;	}}
\ No newline at end of file
+/* * Copyright © 2017-2025 重庆骄智科技有限公司. * 本软件根据 Apache License 2.0 开源，详见 LICENSE 文件。 */package com.joyzl.database;import java.io.Closeable;import java.lang.reflect.Proxy;import java.math.BigDecimal;import java.sql.CallableStatement;import java.sql.Connection;import java.sql.Date;import java.sql.PreparedStatement;import java.sql.ResultSet;import java.sql.SQLException;import java.sql.Time;import java.sql.Timestamp;import java.sql.Types;import java.time.LocalDate;import java.time.LocalDateTime;import java.time.LocalTime;import java.util.ArrayList;import java.util.Arrays;import java.util.Collection;import java.util.List;import java.util.Map;import java.util.Spliterator;import java.util.Spliterators;import java.util.concurrent.CompletableFuture;import java.util.concurrent.CompletionException;import java.util.concurrent.ExecutorService;import java.util.function.Consumer;import java.util.stream.Stream;import java.util.stream.StreamSupport;/** * 数据库操作状态对象 * * @author ZhangXi 2020年3月21日 * */public class Statement implements Closeable {	// 关闭后替代 PreparedStatement，关闭后继续使用时抛出异常	private final static PreparedStatement CLOSED = (PreparedStatement) Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[] { CallableStatement.class }, (proxy, method, args) -> {		throw new IllegalStateException("Statement 已关闭");	});	// 关闭后替代 ResultSet，关闭后继续读取时抛出异常	private final static ResultSet CLOSED_RESULT = (ResultSet) Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[] { ResultSet.class }, (proxy, method, args) -> {		throw new IllegalStateException("Statement 已关闭");	});	// 每个线程回收的参数缓冲区，有拦截器时重用参数数组，避免每个实例分配	private final static ThreadLocal<Buffer[]> BUFFERS = ThreadLocal.withInitial(() -> new Buffer[4]);	private NamedSQL namedsql;	private PreparedStatement statement;	// 连接所属的连接池	private Pool pool;	// 分片，未指定分片时为 null	private Sharding sharding;	// 在所有分片执行时每个分片的数据库操作对象，当前对象使用第一个分片的 PreparedStatement	private Statement[] scatters;	// 在所有分片执行时正在读取结果集的分片	private int scatter;	private ResultSet result;	private int[] results;	private boolean batch;	// 批处理队列中是否有未执行的项	private boolean queued;	// 分片语句在当前分片是否已设置分片键之外的参数，执行后清除	private boolean bound;	private boolean error;	// 事务子对象,	private boolean share;	// 是否以流方式读取	private boolean streaming;	// 本次执行已读取的记录数量	private int rows;	// 拦截器链，没有拦截器时为 null	private Interceptor[] interceptors;	// 提供给拦截器的参数值缓冲区，没有拦截器时为 null	private Buffer buffer;	// 获取缓冲区时的代数，与缓冲区代数不同时表示已关闭	private int generation;	// 批处理队列中的项数	private int batches;	// 获取连接的时间(纳秒)，没有拦截器时不记录	private long opened;	/**	 * 初始化数据库操作状态对象	 *	 * @param sql 命名参数SQL	 * @param transaction 是否开启事务	 */	public Statement(String sql, boolean transaction) {		open(NamedSQL.get(sql), transaction);	}	/**	 * 初始化已分析SQL的数据库操作状态对象	 *	 * @param namedsql 命名参数SQL	 * @param transaction 是否开启事务	 */	Statement(NamedSQL namedsql, boolean transaction) {		open(namedsql, transaction);	}	/**	 * 初始化数据库操作状态对象	 *	 * @param sql 命名参数SQL	 * @param statement 关联的 {@link Statement} 如果开启了事务新的 {@link Statement}	 *            也将开启事务。	 */	public Statement(String sql, Statement statement) {		open(sql, statement);	}	private void open(NamedSQL namedsql, boolean transaction) {		this.namedsql = namedsql;		pool = Database.POOL;		intercept(Database.INTERCEPTORS);		try {			final Connection connection = acquire();			// 注意区分当前的transaction和Statement.transaction成员			// 参数用于指示时候开启数据库链路的事务			// Statement.transaction用于标记子对象具有事务，以便子对象释放时不会意外关闭/回收数据库链路			connection.setAutoCommit(!transaction);			statement = prepare(connection, namedsql);		} catch (SQLException e) {			error = true;			throw new RuntimeException(e);		}	}	private void open(String sql, Statement statement) {		namedsql = NamedSQL.get(sql);		pool = statement.pool;		intercept(Database.INTERCEPTORS);		try {			final Connection connection = statement.prepared().getConnection();			this.statement = prepare(connection, namedsql);			// 事务状态由connection.getAutoCommit()标识			// share表示此数据库链路有多个对象使用			share = true;		} catch (SQLException e) {			error = true;			throw new RuntimeException(e);		}	}	/**	 * 初始化分片数据库操作状态对象<br>	 * 具有分片键参数的语句在分片键参数设置时选择分片；没有分片键参数的查询在所有分片执行，	 * 没有分片键参数的其它语句将抛出异常，避免写入语句在每个分片重复执行	 *	 * @param sql 命名参数SQL	 * @param sharding 分片	 * @param broadcast 是否在所有分片执行，不论是否具有分片键参数	 */	Statement(String sql, Sharding sharding, boolean broadcast) {		namedsql = NamedSQL.get(sql);		this.sharding = sharding;		intercept(Database.INTERCEPTORS);		if (!broadcast) {			for (int index = 0; index < namedsql.names.length; index++) {				if (namedsql.names[index].equals(sharding.getKey())) {					// 延迟到分片键参数设置时选择分片					return;				}			}			if (!query(namedsql)) {				throw new IllegalArgumentException("没有分片键参数 " + sharding.getKey() + " 的语句只有查询可在所有分片执行，其它语句应使用 Sharding.broadcast(...):" + sql);			}		}		final Pool[] pools = sharding.pools();		scatters = new Statement[pools.length];		try {			for (int index = 0; index < pools.length; index++) {				scatters[index] = new Statement(namedsql, pools[index], interceptors);			}		} catch (RuntimeException e) {			close();			throw e;		}		pool = pools[0];		statement = scatters[0].statement;	}	/**	 * 是否为查询语句，WITH 语句按括号之外的主语句判断	 */	private static boolean query(NamedSQL namedsql) {		final String command = namedsql.getSQLCommand();		if ("SELECT".equalsIgnoreCase(command)) {			return true;		}		if (!"WITH".equalsIgnoreCase(command)) {			return false;		}		final String sql = namedsql.getExcuteSQL();		int depth = 0;		for (int index = 0; index < sql.length(); index++) {			final char c = sql.charAt(index);			if (c == '\'' || c == '"' || c == '`') {				// 跳过字符串和标识符				index = sql.indexOf(c, index + 1);				if (index < 0) {					return false;				}			} else if (c == '(') {				depth++;			} else if (c == ')') {				depth--;			} else if (depth == 0 && Character.isLetter(c)) {				int end = index + 1;				while (end < sql.length() && (Character.isLetterOrDigit(sql.charAt(end)) || sql.charAt(end) == '_')) {					end++;				}				final String word = sql.substring(index, end);				if ("SELECT".equalsIgnoreCase(word)) {					return true;				}				if ("INSERT".equalsIgnoreCase(word) || "UPDATE".equalsIgnoreCase(word) || "DELETE".equalsIgnoreCase(word) || "MERGE".equalsIgnoreCase(word)) {					return false;				}				index = end - 1;			}		}		return false;	}	/**	 * 初始化指定连接池的数据库操作状态对象	 */	private Statement(NamedSQL namedsql, Pool pool, Interceptor[] interceptors) {		this.namedsql = namedsql;		this.pool = pool;		this.interceptors = interceptors;		try {			final Connection connection = acquire();			connection.setAutoCommit(true);			statement = prepare(connection, namedsql);		} catch (SQLException e) {			error = true;			throw new RuntimeException(e);		} finally {			// 执行和关闭由在所有分片执行的语句拦截			this.interceptors = null;		}	}	/**	 * 设置拦截器链，有拦截器时才分配参数数组和记录时间	 */	private void intercept(Interceptor[] chain) {		interceptors = chain;		if (chain != null) {			parameters(namedsql.names.length);			opened = System.nanoTime();		}	}	/**	 * 获取提供给拦截器的参数值，缓冲区已归还时抛出异常	 */	private final Object[] parameters() {		if (buffer.generation != generation) {			throw new IllegalStateException("Statement 已关闭");		}		return buffer.values;	}	/**	 * 从当前线程回收的缓冲区获取指定长度的参数数组，此前设置的参数值失效	 */	private final void parameters(int length) {		if (buffer == null || buffer.generation != generation) {			final Buffer[] buffers = BUFFERS.get();			buffer = null;			for (int index = buffers.length - 1; index >= 0; index--) {				if (buffers[index] != null) {					buffer = buffers[index];					buffers[index] = null;					break;				}			}			if (buffer == null) {				buffer = new Buffer();			}			generation = buffer.generation;		}		if (buffer.values == null || buffer.values.length != length) {			buffer.values = new Object[length];		} else {			Arrays.fill(buffer.values, null);		}	}	/**	 * 归还参数缓冲区到当前线程，递增代数使关闭后继续使用的引用失效	 */	private final void recycle() {		final Buffer recycled = buffer;		if (recycled != null && recycled.generation == generation) {			recycled.generation++;			Arrays.fill(recycled.values, null);			final Buffer[] buffers = BUFFERS.get();			for (int index = 0; index < buffers.length; index++) {				if (buffers[index] == null) {					buffers[index] = recycled;					return;				}			}		}	}	/**	 * 从连接池获取连接	 */	private Connection acquire() throws SQLException {		final Interceptor[] chain = interceptors;		if (chain == null) {			return pool.getConnection();		}		long start = System.nanoTime();		Throwable exception = null;		try {			for (int index = 0; index < chain.length; index++) {				chain[index].beforeAcquire(namedsql);			}			start = System.nanoTime();			return pool.getConnection();		} catch (Throwable e) {			exception = e;			throw e;		} finally {			opened = System.nanoTime();			for (int index = chain.length - 1; index >= 0; index--) {				try {					chain[index].afterAcquire(namedsql, opened - start, exception);				} catch (RuntimeException e) {					// 忽略拦截器错误，不影响原有异常和其它拦截器				}			}		}	}	private PreparedStatement prepare(Connection connection, NamedSQL namedsql) throws SQLException {		String sql = namedsql.getExcuteSQL();		final Interceptor[] chain = interceptors;		if (chain != null) {			for (int index = 0; index < chain.length; index++) {				sql = chain[index].prepare(namedsql, sql);			}		}		if (namedsql.isCall()) {			return connection.prepareCall(sql);		} else {			return pool.dialect.prepare(connection, sql, namedsql.getSQLCommand());		}	}	/**	 * 获取 PreparedStatement，分片语句未设置分片键参数时抛出异常	 */	private final PreparedStatement prepared() {		if (statement == null) {			throw new IllegalStateException("分片键参数 " + sharding.getKey() + " 必须最先设置");		}		return statement;	}	/**	 * 分片语句设置参数：分片键参数选择分片，在所有分片执行时将参数设置到其它分片	 */	private final void shard(String name, Object value) {		if (scatters != null) {			for (int index = 1; index < scatters.length; index++) {				scatters[index].setObject(name, value);			}			return;		}		if (name.equals(sharding.getKey())) {			if (statement == CLOSED) {				// 关闭后不能再选择分片重新获取连接				throw new IllegalStateException("Statement 已关闭");			}			final Pool target = sharding.select(value);			if (target == pool) {				return;			}			if (queued) {				throw new IllegalStateException("批处理队列中的分片键必须位于同一分片");			}			if (bound) {				throw new IllegalStateException("分片键参数必须在其它参数之前设置，切换分片将丢失已设置的参数");			}			try {				if (statement != null) {					// 切换分片，归还原分片的连接					close();					result = null;				}				pool = target;				statement = prepare(acquire(), namedsql);				if (interceptors != null) {					// 关闭时已归还缓冲区					parameters(namedsql.names.length);				}			} catch (SQLException e) {				error = true;				throw new RuntimeException(e);			}		} else {			prepared();			bound = true;		}	}	/**	 * 记录提供给拦截器的参数值	 */	private final void bind(String name, Object value) {		for (int index = 0; index < namedsql.names.length; index++) {			if (namedsql.names[index].equals(name)) {				parameters()[index] = value;			}		}	}	/**	 * 设置参数值之前，分片语句按参数选择分片或同步到所有分片，并记录提供给拦截器的参数值；	 * 调用方先检查 sharding 和 interceptors，均为 null 时不调用，以免基本类型参数装箱	 */	private final void route(String name, Object value) {		if (sharding != null) {			shard(name, value);		}		if (interceptors != null) {			bind(name, value);		}	}	/**	 * 以对象类型设置参数值，分片语句按参数选择分片或同步到所有分片；用于以对象属性设置参数	 */	final void setParameter(String name, Object value) {		if (sharding != null || interceptors != null) {			route(name, value);		}		setObject(name, value);	}	/**	 * 在所有分片执行时，集合参数展开后同步第一个分片的语句	 */	private final void follow() {		statement = scatters[0].statement;		if (namedsql != scatters[0].namedsql) {			namedsql = scatters[0].namedsql;			if (interceptors != null) {				parameters(namedsql.names.length);			}		}	}	/**	 * 以对象类型设置参数值，用于在所有分片执行时同步参数	 */	private final void setObject(String name, Object value) {		try {			for (int index = 0; index < namedsql.names.length; index++) {				if (namedsql.names[index].equals(name)) {					if (value == null) {						statement.setNull(index + 1, Types.NULL);					} else if (value instanceof java.util.Date && !(value instanceof java.sql.Date || value instanceof Timestamp || value instanceof Time)) {						statement.setDate(index + 1, new java.sql.Date(((java.util.Date) value).getTime()));					} else {						statement.setObject(index + 1, value);					}				}			}		} catch (SQLException ex) {			throw new RuntimeException(ex);		}	}	/**	 * 在所有分片并行执行	 */	private final boolean scatter() {		scatter = 0;		queued = false;		batches = 0;		if (result != null) {			try {				result.close();			} catch (SQLException e) {				// 忽略错误			}			result = null;		}		// 在后台线程中依次执行，避免所有后台线程都在等待其它分片		final boolean serial = Database.isWorker();		final ExecutorService executor = Database.executor();		final List<CompletableFuture<Boolean>> futures = new ArrayList<>(scatters.length);		// 第一个分片在当前线程执行		futures.add(null);		for (int index = 1; index < scatters.length; index++) {			futures.add(serial ? null : CompletableFuture.supplyAsync(scatters[index]::execute, executor));		}		boolean success = false;		RuntimeException exception = null;		for (int index = 0; index < scatters.length; index++) {			try {				if (futures.get(index) == null ? scatters[index].execute() : futures.get(index).join()) {					success = true;				}			} catch (CompletionException e) {				exception = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;			} catch (RuntimeException e) {				exception = e;			}		}		if (exception != null) {			error = true;			throw exception;		}		return success;	}	/**	 * 以流方式读取结果集，必须在 {@link #execute()} 之前调用<br>	 * 由数据库方言设置读取方式，例如 MySQL 将逐行读取而不是读取全部记录到内存，	 * 结果集读取完成或关闭之前数据库链路不能执行其它语句	 */	public final void streaming() {		try {			if (scatters != null) {				for (int index = 0; index < scatters.length; index++) {					scatters[index].streaming();				}			} else {				pool.dialect.streaming(prepared());				streaming = true;			}		} catch (SQLException e) {			throw new RuntimeException(e);		}	}	/**	 * 添加一次批处理队列<br>	 * 必须启用事务，只能执行 UPDATE / INSERT / DELETE	 */	public final void batch() {		if (scatters != null) {			// 第一个分片的语句即当前语句			for (int index = 0; index < scatters.length; index++) {				scatters[index].batch();			}			batch = true;			queued = true;			batches++;			return;		}		try {			prepared().addBatch();			batch = true;			queued = true;			batches++;		} catch (SQLException e) {			throw new RuntimeException(e);		}		// statement.executeBatch();		// statement.clearBatch();	}	/**	 * 请求数据库执行SQL	 *	 * @return true /false 执行成功/执行失败	 */	public final boolean execute() {		final Interceptor[] chain = interceptors;		if (chain == null) {			return perform();		}		final boolean flush = batch;		final int count = batches;		final Object[] values = flush ? null : parameters();		long start = System.nanoTime();		Throwable exception = null;		try {			for (int index = 0; index < chain.length; index++) {				if (flush) {					chain[index].beforeFlush(namedsql, count);				} else {					chain[index].beforeExecute(namedsql, values);				}			}			start = System.nanoTime();			return perform();		} catch (Throwable e) {			exception = e;			throw e;		} finally {			final long nanos = System.nanoTime() - start;			for (int index = chain.length - 1; index >= 0; index--) {				try {					if (flush) {						chain[index].afterFlush(namedsql, count, nanos, exception);					} else {						chain[index].afterExecute(namedsql, values, nanos, exception);					}				} catch (RuntimeException e) {					// 忽略拦截器错误，不影响原有异常和其它拦截器				}			}		}	}	/**	 * 设置调节的 fetch size，驱动拒绝时忽略，调节不能影响执行	 */	private final void tune(Tuner tuner) {		try {			final int fetch = tuner.fetch(namedsql);			if (fetch > 0) {				statement.setFetchSize(fetch);			}		} catch (SQLException | RuntimeException e) {			// 忽略错误		}	}	private final boolean perform() {		if (scatters != null) {			return scatter();		}		prepared();		bound = false;		try {			if (result != null) {				// 多次执行时自动关闭上一次的结果集				result.close();				result = null;			}			final Tuner tuner = Database.TUNER;			if (tuner != null) {				if (rows > 0) {					tuner.record(namedsql, rows);					rows = 0;				}				if (!batch && !streaming) {					tune(tuner);				}			}			if (batch) {				queued = false;				batches = 0;				results = statement.executeBatch();				// 批量处理时无须对每个执行的影响数量进行判断				return results != null && results.length > 0;			} else {				if (namedsql.isCall()) {					// 注册输出参数					CallableStatement callable = (CallableStatement) statement;					try {						for (int index = 0; index < namedsql.types.length; index++) {							if (namedsql.types[index] != null) {								callable.registerOutParameter(index + 1, namedsql.types[index]);							}						}					} catch (SQLException ex) {						throw new RuntimeException(ex);					}				}				// execute()只在第一个返回为结果集的时候为真				if (statement.execute()) {					return true;				} else {					return statement.getUpdateCount() > 0;				}			}		} catch (Exception ex) {			error = true;			try {				if (!statement.getConnection().getAutoCommit()) {					// 如果禁用了自动提交则执行回滚					statement.getConnection().rollback();				}			} catch (SQLException e) {				throw new RuntimeException(e);			}			throw new RuntimeException(ex);		}	}	/**	 * 获取执行SQL后更新的记录数量	 *	 * @return 0 没有记录被更新 / 1~n 更新的记录数 / -1 如果执行的是查询；在所有分片执行时为各分片之和	 */	public final int getUpdatedCount() {		if (scatters != null) {			int count = -1;			for (int index = 0; index < scatters.length; index++) {				final int c = scatters[index].getUpdatedCount();				if (c >= 0) {					count = count < 0 ? c : count + c;				}			}			return count;		}		if (batch) {			if (results == null) {				return 0;			}			int count = 0;			for (int index = 0; index < results.length; index++) {				count += results[index];			}			return count;		} else {			try {				return statement.getUpdateCount();			} catch (SQLException ex) {				error = true;				throw new RuntimeException(ex);			}		}	}	/**	 * 获取执行批量SQL后更新的记录数量	 * 	 * @return int[] 按批量执行顺序返回受影响行数，在所有分片执行时按分片顺序依次连接 / null 如果未执行过批量处理	 */	public final int[] getUpdatedBatchs() {		if (scatters != null) {			int[] all = null;			for (int index = 0; index < scatters.length; index++) {				final int[] r = scatters[index].getUpdatedBatchs();				if (r != null) {					if (all == null) {						all = r.clone();					} else {						final int length = all.length;						all = Arrays.copyOf(all, length + r.length);						System.arraycopy(r, 0, all, length, r.length);					}				}			}			return all;		}		return results;	}	/**	 * 如果执行插入，则移动到下一条记录的自动ID	 *	 * @return 有ID可读 true / false 没有ID可读	 */	public final boolean nextAutoId() {		try {			if (result == null) {				result = statement.getGeneratedKeys();				if (result == null) {					return false;				}			}			if (result.next()) {				return true;			} else {				result.close();				result = null;				return false;			}		} catch (SQLException ex) {			error = true;			throw new RuntimeException(ex);		}	}	/**	 * 获取创建新记录时数据库生成的记录ID	 *	 * @return 只有具有自增id特性的数据插入操作才会返回有效id / 0 未返回有效id	 */	public final int getAutoId() {		try {			if (result == null) {				result = statement.getGeneratedKeys();				if (result == null) {					return 0;				}				if (result.next()) {					return result.getInt(1);				}			} else {				return result.getInt(1);			}		} catch (SQLException ex) {			error = true;			throw new RuntimeException(ex);		}		return 0;	}	/**	 * 如果执行查询，则移动到下一条记录	 *	 * @return 有记录可读 true / false 没有记录可读	 */	public final boolean nextRecord() {		try {			if (result == null) {				result = statement.getResultSet();				if (result == null) {					return false;				}			}			if (result.next()) {				rows++;				return true;			} else {				result.close();				result = null;				if (scatters != null) {					// 依次读取其它分片的结果集					while (++scatter < scatters.length) {						result = scatters[scatter].statement.getResultSet();						if (result != null) {							if (result.next()) {								rows++;								return true;							}							result.close();							result = null;						}					}				}				return false;			}		} catch (SQLException ex) {			error = true;			throw new RuntimeException(ex);		}	}	/**	 * 如果执行查询，则读取当前位置之后的所有记录并映射为对象<br>	 * 支持 Java record 和 JavaBean，字段名与属性名忽略大小写和下划线匹配	 *	 * @param clazz 映射目标类型	 * @return {@code List<T>} 没有记录时返回空集合	 */	public final <T> List<T> fetch(Class<T> clazz) {		final List<T> entities = new ArrayList<>();		if (nextRecord()) {			final EntityMapper<T> mapper = mapper(clazz);			do {				entities.add(mapper.map(result));			} while (nextRecord());		}		return entities;	}	/**	 * 如果执行查询，则读取当前位置之后的所有记录为列式存储的只读结果集<br>	 * 返回的 {@link Table} 不再需要数据库连接，可缓存并在多个线程间共享	 *	 * @return Table 没有结果集时返回没有字段的空结果集	 */	public final Table materialize() {		try {			if (result == null) {				result = prepared().getResultSet();				if (result == null) {					return Table.EMPTY;				}			}			return Table.build(this, result);		} catch (SQLException e) {			error = true;			throw new RuntimeException(e);		}	}	/**	 * 获取当前结果集	 */	final ResultSet result() {		return result;	}	/**	 * 如果执行查询，则以流的方式逐条读取当前位置之后的记录并映射为对象<br>	 * 流在 Statement 关闭之前消费	 *	 * @param clazz 映射目标类型	 * @return {@code Stream<T>}	 */	public final <T> Stream<T> stream(Class<T> clazz) {		return StreamSupport.stream(new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {			private EntityMapper<T> mapper;			@Override			public boolean tryAdvance(Consumer<? super T> action) {				if (nextRecord()) {					if (mapper == null) {						mapper = mapper(clazz);					}					action.accept(mapper.map(result));					return true;				}				return false;			}		}, false);	}	/**	 * 如果执行查询，则读取下一条记录并映射为对象	 *	 * @param clazz 映射目标类型	 * @return T / null 没有记录可读	 */	public final <T> T first(Class<T> clazz) {		if (nextRecord()) {			return mapper(clazz).map(result);		}		return null;	}	/**	 * 读取当前位置之后的所有记录并映射为对象，以指定字段值作为键	 *	 * @param clazz 映射目标类型	 * @param column 作为键的字段名	 * @param entities 字段值 -> 对象	 */	final <T> void fetch(Class<T> clazz, String column, Map<Object, T> entities) {		if (nextRecord()) {			final EntityMapper<T> mapper = mapper(clazz);			try {				do {					entities.put(result.getObject(column), mapper.map(result));				} while (nextRecord());			} catch (SQLException ex) {				error = true;				throw new RuntimeException(ex);			}		}	}	private final <T> EntityMapper<T> mapper(Class<T> clazz) {		try {			return EntityMapper.get(clazz, result.getMetaData());		} catch (SQLException ex) {			error = true;			throw new RuntimeException(ex);		}	}	// public final String names() {	// try {	//	// result.getMetaData().	// statement.getMetaData();	// } catch (SQLException e) {	// // TODO Auto-generated catch block	// e.printStackTrace();	// }	// }	/**	 * 关闭数据库操作对象，ResultSet和Statement被关闭，Connection对象被放回连接池	 */	@Override	public final void close() {		final Interceptor[] chain = interceptors;		if (chain == null || statement == CLOSED) {			release();			return;		}		// 拦截器使用关闭前的语句和获取连接的时间		final NamedSQL sql = namedsql;		final long start = opened;		for (int index = 0; index < chain.length; index++) {			try {				chain[index].beforeClose(sql);			} catch (RuntimeException e) {				// 忽略拦截器错误，关闭时必须归还连接			}		}		Throwable exception = null;		try {			release();		} catch (Throwable e) {			exception = e;			throw e;		} finally {			final long nanos = System.nanoTime() - start;			for (int index = chain.length - 1; index >= 0; index--) {				try {					chain[index].afterClose(sql, nanos, exception);				} catch (RuntimeException e) {					// 忽略拦截器错误，不影响原有异常和其它拦截器				}			}			recycle();		}	}	private final void release() {		if (scatters != null) {			RuntimeException exception = null;			for (int index = 0; index < scatters.length; index++) {				if (scatters[index] != null) {					try {						scatters[index].close();					} catch (RuntimeException e) {						exception = e;					}				}			}			statement = CLOSED;			result = CLOSED_RESULT;			if (exception != null) {				throw exception;			}			return;		}		if (statement == null) {			// 分片语句未选择分片			statement = CLOSED;			result = CLOSED_RESULT;			return;		}		if (statement == CLOSED) {			return;		}		if (rows > 0) {			final Tuner tuner = Database.TUNER;			if (tuner != null) {				tuner.record(namedsql, rows);			}			rows = 0;		}		Connection connection = null;		boolean returned = false;		try {			connection = statement.getConnection();			if (connection.isClosed()) {				return;			}			if (!connection.getAutoCommit()) {				// 1 成功执行自动提交				if (!error) {					connection.commit();				}				connection.setAutoCommit(true);			}			// 关闭statement将自动关闭 ResultSet 如果有			statement.close();			if (!share) {				// 事务情况下，会有多个Statement实例，通过此标志避免connection被多次缓存				returned = true;				pool.release(connection);			}		} catch (SQLException e) {			throw new RuntimeException(e);		} finally {			statement = CLOSED;			result = CLOSED_RESULT;			if (!share && !returned) {				// 连接已关闭或提交失败时丢弃连接，借出和归还计数保持一致				pool.discard(connection);			}		}	}	/**	 * 设置SQL参数值	 *	 * @param name 参数名称	 * @param value 参数值 / null	 */	public final void setValue(String name, byte[] value) {		if (sharding != null || interceptors != null) {			route(name, value);		}		try {			for (int index = 0; index < namedsql.names.length; index++) {				if (namedsql.names[index].equals(name)) {					if (value == null) {						statement.setNull(index + 1, Types.VARBINARY);					} else {						statement.setBytes(index + 1, value);					}				}			}		} catch (SQLException ex) {			throw new RuntimeException(ex);		}	}	/**	 * 设置SQL参数值	 *	 * @param name 参数名称	 * @param value 参数值	 */	public final void setValue(String name, byte value) {		if (sharding != null || interceptors != null) {			route(name, value);		}		try {			for (int index = 0; index < namedsql.names.length; index++) {				if (namedsql.names[index].equals(name)) {					statement.setByte(index + 1, value);				}			}		} catch (SQLException ex) {			throw new RuntimeException(ex);		}	}	/**	 * 设置SQL参数值	 *	 * @param name 参数名称	 * @param value 参数值 / null	 */	public final void setValue(String name, Byte value) {		if (sharding != null || interceptors != null) {			route(name, value);		}		try {			for (int index = 0; index < namedsql.names.length; index++) {				if (namedsql.names[index].equals(name)) {					if (value == null) {						statement.setNull(index + 1, Types.BOOLEAN);					} else {						statement.setByte(index + 1, value);					}				}			}		} catch (SQLException ex) {			throw new RuntimeException(ex);		}	}	/**	 * 设置SQL参数值	 *	 * @param name 参数名称	 * @param value 参数值	 */	public final void setValue(String name, boolean value) {		if (sharding != null || interceptors != null) {			route(name, value);		}		try {			for (int index = 0; index < namedsql.names.length; index++) {				if (namedsql.names[index].equals(name)) {					statement.setBoolean(index + 1, value);				}			}		} catch (SQLException ex) {			throw new RuntimeException(ex);		}	}	/**	 * 设置SQL参数值	 *	 * @param name 参数名称	 * @param value 参数值 / null	 */	public final void setValue(String name, Boolean value) {		if (sharding != null || interceptors != null) {			route(name, value);		}		try {			for (int index = 0; index < namedsql.names.length; index++) {				if (namedsql.names[index].equals(name)) {					if (value == null) {						statement.setNull(index + 1, Types.BOOLEAN);					} else {						statement.setBoolean(index + 1, value);					}				}			}		} catch (SQLException ex) {			throw new RuntimeException(ex);		}	}	/**	 * 设置SQL参数值	 *	 * @param name 参数名称	 * @param value 参数值	 */	public final void setValue(String name, short value) {		if (sharding != null || interceptors != null) {			route(name, value);		}		try {			for (int index = 0; index < namedsql.names.length; index++) {				if (namedsql.names[index].equals(name)) {					statement.setShort(index + 1, value);				}			}		} catch (SQLException ex) {			throw new RuntimeException(ex);		}	}	/**	 * 设置SQL参数值	 *	 * @param name 参数名称	 * @param value 参数值 / null	 */	public final void setValue(String name, Short value) {		if (sharding != null || interceptors != null) {			route(name, value);		}		try {			for (int index = 0; index < namedsql.names.length; index++) {				if (namedsql.names[index].equals(name)) {					if (value == null) {						statement.setNull(index + 1, Types.SMALLINT);					} else {						statement.setShort(index + 1, value);					}				}			}		} catch (SQLException ex) {			throw new RuntimeException(ex);		}	}	/**	 * 设置SQL参数值	 *	 * @param name 参数名称	 * @param value 参数值	 */	public final void setValue(String name, int value) {		if (sharding != null || interceptors != null) {			route(name, value);		}		try {			for (int index = 0; index < namedsql.names.length; index++) {				if (namedsql.names[index].equals(name)) {					statement.setInt(index + 1, value);				}			}		} catch (SQLException ex) {			throw new RuntimeException(ex);		}	}	/**	 * 设置SQL参数值	 *	 * @param name 参数名称	 * @param value 参数值 / null	 */	public final void setValue(String name, Integer value) {		if (sharding != null || interceptors != null) {			route(name, value);		}		try {			for (int index = 0; index < namedsql.names.length; index++) {				if (namedsql.names[index].equals(name)) {					if (value == null) {						statement.setNull(index + 1, Types.INTEGER);					} else {						statement.setInt(index + 1, value);					}				}			}		} catch (SQLException ex) {			throw new RuntimeException(ex);		}	}	/**	 * 设置SQL参数值	 *	 * @param name 参数名称	 * @param value 参数值	 */	public final void setValue(String name, long value) {		if (sharding != null || interceptors != null) {			route(name, value);		}		try {			for (int index = 0; index < namedsql.names.length; index++) {				if (namedsql.names[index].equals(name)) {					statement.setLong(index + 1, value);				}			}		} catch (SQLException ex) {			throw new RuntimeException(ex);		}	}	/**	 * 设置SQL参数值	 *	 * @param name 参数名称	 * @param value 参数值 / null	 */	public final void setValue(String name, Long value) {		if (sharding != null || interceptors != null) {			route(name, value);		}		try {			for (int index = 0; index < namedsql.names.length; index++) {				if (namedsql.names[index].equals(name)) {					if (value == null) {						statement.setNull(index + 1, Types.BIGINT);					} else {						statement.setLong(index + 1, value);					}				}			}		} catch (SQLException ex) {			throw new RuntimeException(ex);		}	}	/**	 * 设置SQL参数值	 *	 * @param name 参数名称	 * @param value 参数值	 */	public final void setValue(String name, float value) {		if (sharding != null || interceptors != null) {			route(name, value);		}		try {			for (int index = 0; index < namedsql.names.length; index++) {				if (namedsql.names[index].equals(name)) {					statement.setFloat(index + 1, value);				}			}		} catch (SQLException ex) {			throw new RuntimeException(ex);		}	}	/**	 * 设置SQL参数值	 *	 * @param name 参数名称	 * @param value 参数值 / null	 */	public final void setValue(String name, Float value) {		if (sharding != null || interceptors != null) {			route(name, value);		}		try {			for (int index = 0; index < namedsql.names.length; index++) {				if (namedsql.names[index].equals(name)) {					if (value == null) {						statement.setNull(index + 1, Types.FLOAT);					} else {						statement.setFloat(index + 1, value);					}				}			}		} catch (SQLException ex) {			throw new RuntimeException(ex);		}	}	/**	 * 设置SQL参数值	 *	 * @param name 参数名称	 * @param value 参数值	 */	public final void setValue(String name, double value) {		if (sharding != null || interceptors != null) {			route(name, value);		}		try {			for (int index = 0; index < namedsql.names.length; index++) {				if (namedsql.names[index].equals(name)) {					statement.setDouble(index + 1, value);				}			}		} catch (SQLException ex) {			throw new RuntimeException(ex);		}	}	/**	 * 设置SQL参数值	 *	 * @param name 参数名称	 * @param value 参数值 / null	 */	public final void setValue(String name, Double value) {		if (sharding != null || interceptors != null) {			route(name, value);		}		try {			for (int index = 0; index < namedsql.names.length; index++) {				if (namedsql.names[index].equals(name)) {					if (value == null) {						statement.setNull(index + 1, Types.DOUBLE);					} else {						statement.setDouble(index + 1, value);					}				}			}		} catch (SQLException ex) {			throw new RuntimeException(ex);		}	}	/**	 * 设置SQL参数值	 *	 * @param name 参数名称	 * @param value 参数值 / null	 */	public final void setValue(String name, String value) {		if (sharding != null || interceptors != null) {			route(name, value);		}		try {			for (int index = 0; index < namedsql.names.length; index++) {				if (namedsql.names[index].equals(name)) {					if (value == null) {						statement.setNull(index + 1, Types.DECIMAL);					} else {						statement.setString(index + 1, value);					}				}			}		} catch (SQLException ex) {			throw new RuntimeException(ex);		}	}	/**	 * 设置SQL参数值	 *	 * @param name 参数名称	 * @param value 参数值 / null	 */	public final void setValue(String name, java.util.Date value) {		if (sharding != null || interceptors != null) {			route(name, value);		}		final java.sql.Date v = value == null ? null : new java.sql.Date(value.getTime());		try {			for (int index = 0; index < namedsql.names.length; index++) {				if (namedsql.names[index].equals(name)) {					if (value == null) {						statement.setNull(index + 1, Types.DATE);					} else {						statement.setDate(index + 1, v);					}				}			}		} catch (SQLException ex) {			throw new RuntimeException(ex);		}	}	/**	 * 设置SQL参数值	 *	 * @param name 参数名称	 * @param value 参数值 / null	 */	public final void setValue(String name, LocalTime value) {		if (sharding != null || interceptors != null) {			route(name, value);		}		try {			for (int index = 0; index < namedsql.names.length; index++) {				if (namedsql.names[index].equals(name)) {					if (value == null) {						statement.setNull(index + 1, Types.TIME);					} else {						statement.setTime(index + 1, Time.valueOf(value));					}				}			}		} catch (SQLException ex) {			throw new RuntimeException(ex);		}	}	/**	 * 设置SQL参数值	 *	 * @param name 参数名称	 * @param value 参数值 / null	 */	public final void setValue(String name, LocalDate value) {		if (sharding != null || interceptors != null) {			route(name, value);		}		try {			for (int index = 0; index < namedsql.names.length; index++) {				if (namedsql.names[index].equals(name)) {					if (value == null) {						statement.setNull(index + 1, Types.DATE);					} else {						statement.setDate(index + 1, Date.valueOf(value));					}				}			}		} catch (SQLException ex) {			throw new RuntimeException(ex);		}	}	/**	 * 设置SQL参数值	 *	 * @param name 参数名称	 * @param value 参数值 / null	 */	public final void setValue(String name, LocalDateTime value) {		if (sharding != null || interceptors != null) {			route(name, value);		}		try {			for (int index = 0; index < namedsql.names.length; index++) {				if (namedsql.names[index].equals(name)) {					if (value == null) {						statement.setNull(index + 1, Types.TIMESTAMP);					} else {						statement.setTimestamp(index + 1, Timestamp.valueOf(value));					}				}			}		} catch (SQLException ex) {			throw new RuntimeException(ex);		}	}	/**	 * 设置SQL参数值	 *	 * @param name 参数名称	 * @param value 参数值 / null	 */	public final void setValue(String name, BigDecimal value) {		if (sharding != null || interceptors != null) {			route(name, value);		}		try {			for (int index = 0; index < namedsql.names.length; index++) {				if (namedsql.names[index].equals(name)) {					if (value == null) {						statement.setNull(index + 1, Types.DECIMAL);					} else {						statement.setBigDecimal(index + 1, value);					}				}			}		} catch (SQLException ex) {			throw new RuntimeException(ex);		}	}	/**	 * 设置集合SQL参数值，参数占位符被展开为多个占位符，例如 {@code WHERE `id` IN (?ids)}<br>	 * 元素数量向上取整到档位 1,2,4,8...512,1000 并以最后一个元素填充，使不同数量的集合只产生少量不同的SQL；	 * 空集合以一个NULL值填充。档位变化时将重新预编译语句，此前设置的其它参数值将失效，因此集合参数应最先设置。	 *	 * @param name 参数名称	 * @param values 参数值集合，元素数量不能超过 {@link NamedSQL#MAX_BUCKET}	 */	public final void setValue(String name, Collection<?> values) {		if (sharding != null && collect(name)) {			for (int index = 0; index < scatters.length; index++) {				scatters[index].setValue(name, values);			}			follow();			if (interceptors != null) {				bind(name, values);			}			return;		}		final Object[] array = values.toArray();		final int bucket = expand(name, array.length);		try {			int k = 0;			for (int index = 0; index < namedsql.names.length; index++) {				if (namedsql.names[index].equals(name)) {					if (array.length == 0) {						statement.setNull(index + 1, Types.NULL);					} else {						statement.setObject(index + 1, array[Math.min(k % bucket, array.length - 1)]);						if (interceptors != null) {							parameters()[index] = array[Math.min(k % bucket, array.length - 1)];						}					}					k++;				}			}		} catch (SQLException ex) {			throw new RuntimeException(ex);		}	}	/**	 * 设置集合SQL参数值，参数占位符被展开为多个占位符，例如 {@code WHERE `id` IN (?ids)}<br>	 * 展开规则参考 {@link #setValue(String, Collection)}	 *	 * @param name 参数名称	 * @param values 参数值集合，元素数量不能超过 {@link NamedSQL#MAX_BUCKET}	 */	public final void setValue(String name, int[] values) {		if (sharding != null && collect(name)) {			for (int index = 0; index < scatters.length; index++) {				scatters[index].setValue(name, values);			}			follow();			if (interceptors != null) {				bind(name, values);			}			return;		}		final int bucket = expand(name, values.length);		try {			int k = 0;			for (int index = 0; index < namedsql.names.length; index++) {				if (namedsql.names[index].equals(name)) {					if (values.length == 0) {						statement.setNull(index + 1, Types.INTEGER);					} else {						statement.setInt(index + 1, values[Math.min(k % bucket, values.length - 1)]);						if (interceptors != null) {							parameters()[index] = values[Math.min(k % bucket, values.length - 1)];						}					}					k++;				}			}		} catch (SQLException ex) {			throw new RuntimeException(ex);		}	}	/**	 * 设置集合SQL参数值，参数占位符被展开为多个占位符，例如 {@code WHERE `id` IN (?ids)}<br>	 * 展开规则参考 {@link #setValue(String, Collection)}	 *	 * @param name 参数名称	 * @param values 参数值集合，元素数量不能超过 {@link NamedSQL#MAX_BUCKET}	 */	public final void setValue(String name, long[] values) {		if (sharding != null && collect(name)) {			for (int index = 0; index < scatters.length; index++) {				scatters[index].setValue(name, values);			}			follow();			if (interceptors != null) {				bind(name, values);			}			return;		}		final int bucket = expand(name, values.length);		try {			int k = 0;			for (int index = 0; index < namedsql.names.length; index++) {				if (namedsql.names[index].equals(name)) {					if (values.length == 0) {						statement.setNull(index + 1, Types.BIGINT);					} else {						statement.setLong(index + 1, values[Math.min(k % bucket, values.length - 1)]);						if (interceptors != null) {							parameters()[index] = values[Math.min(k % bucket, values.length - 1)];						}					}					k++;				}			}		} catch (SQLException ex) {			throw new RuntimeException(ex);		}	}	/**	 * 分片语句设置集合参数，集合参数不能作为分片键	 *	 * @return true 在所有分片执行，由每个分片展开参数 / false 在已选择的分片展开参数	 */	private final boolean collect(String name) {		if (scatters != null) {			return true;		}		if (name.equals(sharding.getKey())) {			throw new IllegalArgumentException("分片键参数不能为集合:" + name);		}		prepared();		bound = true;		return false;	}	/**	 * 按集合元素数量展开参数，档位变化时重新预编译语句	 *	 * @return 档位	 */	private final int expand(String name, int size) {		final int bucket = NamedSQL.bucket(size);		final NamedSQL variant = namedsql.expand(name, bucket);		if (variant != namedsql) {			if (scatters != null) {				throw new IllegalStateException("在所有分片执行的语句不支持集合参数");			}			if (queued) {				throw new IllegalStateException("批处理队列中集合参数的元素数量档位必须一致");			}			try {				if (result != null) {					result.close();					result = null;				}				final PreparedStatement prepared = prepare(prepared().getConnection(), variant);				statement.close();				statement = prepared;				namedsql = variant;				if (interceptors != null) {					// 此前设置的其它参数值已失效					parameters(variant.names.length);				}			} catch (SQLException ex) {				error = true;				throw new RuntimeException(ex);			}		}		return bucket;	}	/**	 * 以对象属性设置SQL参数值<br>	 * 支持 Java record 和 JavaBean，参数名与属性名忽略大小写和下划线匹配，没有匹配属性的参数不会被设置	 *	 * @param entity 实体对象	 */	public final void setValues(Object entity) {		bind(EntityBinder.get(entity.getClass(), namedsql), entity);	}	/**	 * 以绑定器设置对象属性值，集合属性最先设置	 *	 * @return 语句当前的绑定器，集合属性展开后为变体语句的绑定器	 */	private final EntityBinder bind(EntityBinder binder, Object entity) {		if (sharding != null) {			// 分片键参数最先设置以选择分片，其它参数逐个设置到选定的分片或所有分片			binder.route(this, entity, sharding.getKey());			return binder;		}		if (binder.expands()) {			binder.expand(this, entity);			binder = EntityBinder.get(entity.getClass(), namedsql);		}		binder.bind(statement, entity);		if (interceptors != null) {			binder.values(entity, parameters());		}		return binder;	}	/**	 * 以对象属性设置SQL参数值并逐个添加到批处理队列<br>	 * 等同于对每个对象执行 {@link #setValues(Object)} 和 {@link #batch()}	 *	 * @param entities 实体对象集合	 */	public final void batchAll(Iterable<?> entities) {		EntityBinder binder = null;		for (Object entity : entities) {			if (binder == null || binder.type() != entity.getClass()) {				binder = EntityBinder.get(entity.getClass(), namedsql);			}			binder = bind(binder, entity);			batch();		}	}	/**	 * 获取当前记录索引(1~0)	 * 	 * @return 0 无记录	 */	public final int getIndex() {		try {			if (result == null) {				return 0;			}			return result.getRow();		} catch (SQLException e) {			throw new RuntimeException(e);		}	}	/**	 * 读取当前记录值	 *	 * @param name 字段名	 * @param default_value 值为null时的替代值	 * @return 指定字段值 / default_value	 */	public final byte[] getValue(String name, byte[] default_value) {		try {			if (result == null) {				if (namedsql.isCall()) {					CallableStatement callable = (CallableStatement) statement;					for (int index = 0; index < namedsql.names.length; index++) {						if (namedsql.names[index].equals(name) && namedsql.types[index] != null) {							byte[] value = callable.getBytes(index + 1);							if (callable.wasNull()) {								return default_value;							}							return value;						}					}				}				throw new SQLException("没有结果集，也没有可返回的参数");			}			byte[] value = result.getBytes(name);			if (result.wasNull()) {				return default_value;			}			return value;		} catch (SQLException e) {			throw new RuntimeException(e);		}	}	/**	 * 读取当前记录值	 *	 * @param name 字段名	 * @param default_value 值为null时的替代值	 * @return 指定字段值 / default_value	 */	public final boolean getValue(String name, boolean default_value) {		try {			if (result == null) {				if (namedsql.isCall()) {					CallableStatement callable = (CallableStatement) statement;					for (int index = 0; index < namedsql.names.length; index++) {						if (namedsql.names[index].equals(name) && namedsql.types[index] != null) {							boolean value = callable.getBoolean(index + 1);							if (callable.wasNull()) {								return default_value;							}							return value;						}					}				}				throw new SQLException("没有结果集，也没有可返回的参数");			}			boolean value = result.getBoolean(name);			if (result.wasNull()) {				return default_value;			}			return value;		} catch (SQLException e) {			throw new RuntimeException(e);		}	}	/**	 * 读取当前记录值	 *	 * @param name 字段名	 * @param default_value 值为null时的替代值	 * @return 指定字段值 / default_value	 */	public final Boolean getValue(String name, Boolean default_value) {		try {			if (result == null) {				if (namedsql.isCall()) {					CallableStatement callable = (CallableStatement) statement;					for (int index = 0; index < namedsql.names.length; index++) {						if (namedsql.names[index].equals(name) && namedsql.types[index] != null) {							boolean value = callable.getBoolean(index + 1);							if (callable.wasNull()) {								return default_value;							}							return value;						}					}				}				throw new SQLException("没有结果集，也没有可返回的参数");			}			boolean value = result.getBoolean(name);			if (result.wasNull()) {				return default_value;			}			return value;		} catch (SQLException e) {			throw new RuntimeException(e);		}	}	/**	 * 读取当前记录值	 *	 * @param name 字段名	 * @param default_value 值为null时的替代值	 * @return 指定字段值 / default_value	 */	public final short getValue(String name, short default_value) {		try {			if (result == null) {				if (namedsql.isCall()) {					CallableStatement callable = (CallableStatement) statement;					for (int index = 0; index < namedsql.names.length; index++) {						if (namedsql.names[index].equals(name) && namedsql.types[index] != null) {							short value = callable.getShort(index + 1);							if (callable.wasNull()) {								return default_value;							}							return value;						}					}				}				throw new SQLException("没有结果集，也没有可返回的参数");			}			short value = result.getShort(name);			if (result.wasNull()) {				return default_value;			}			return value;		} catch (SQLException e) {			throw new RuntimeException(e);		}	}	/**	 * 读取当前记录值	 *	 * @param name 字段名	 * @param default_value 值为null时的替代值	 * @return 指定字段值 / default_value	 */	public final Short getValue(String name, Short default_value) {		try {			if (result == null) {				if (namedsql.isCall()) {					CallableStatement callable = (CallableStatement) statement;					for (int index = 0; index < namedsql.names.length; index++) {						if (namedsql.names[index].equals(name) && namedsql.types[index] != null) {							short value = callable.getShort(index + 1);							if (callable.wasNull()) {								return default_value;							}							return value;						}					}				}				throw new SQLException("没有结果集，也没有可返回的参数");			}			short value = result.getShort(name);			if (result.wasNull()) {				return default_value;			}			return value;		} catch (SQLException e) {			throw new RuntimeException(e);		}	}	/**	 * 读取当前记录值	 *	 * @param name 字段名	 * @param default_value 值为null时的替代值	 * @return 指定字段值 / default_value	 */	public final int getValue(String name, int default_value) {		try {			if (result == null) {				if (namedsql.isCall()) {					CallableStatement callable = (CallableStatement) statement;					for (int index = 0; index < namedsql.names.length; index++) {						if (namedsql.names[index].equals(name) && namedsql.types[index] != null) {							int value = callable.getInt(index + 1);							if (callable.wasNull()) {								return default_value;							}							return value;						}					}				}				throw new SQLException("没有结果集，也没有可返回的参数");			}			int value = result.getInt(name);			if (result.wasNull()) {				return default_value;			}			return value;		} catch (SQLException e) {			throw new RuntimeException(e);		}	}	/**	 * 读取当前记录值	 *	 * @param name 字段名	 * @param default_value 值为null时的替代值	 * @return 指定字段值 / default_value	 */	public final Integer getValue(String name, Integer default_value) {		try {			if (result == null) {				if (namedsql.isCall()) {					CallableStatement callable = (CallableStatement) statement;					for (int index = 0; index < namedsql.names.length; index++) {						if (namedsql.names[index].equals(name) && namedsql.types[index] != null) {							int value = callable.getInt(index + 1);							if (callable.wasNull()) {								return default_value;							}							return value;						}					}				}				throw new SQLException("没有结果集，也没有可返回的参数");			}			int value = result.getInt(name);			if (result.wasNull()) {				return default_value;			}			return value;		} catch (SQLException e) {			throw new RuntimeException(e);		}	}	/**	 * 读取当前记录值	 *	 * @param name 字段名	 * @param default_value 值为null时的替代值	 * @return 指定字段值 / default_value	 */	public final long getValue(String name, long default_value) {		try {			if (result == null) {				if (namedsql.isCall()) {					CallableStatement callable = (CallableStatement) statement;					for (int index = 0; index < namedsql.names.length; index++) {						if (namedsql.names[index].equals(name) && namedsql.types[index] != null) {							long value = callable.getLong(index + 1);							if (callable.wasNull()) {								return default_value;							}							return value;						}					}				}				throw new SQLException("没有结果集，也没有可返回的参数");			}			long value = result.getLong(name);			if (result.wasNull()) {				return default_value;			}			return value;		} catch (SQLException e) {			throw new RuntimeException(e);		}	}	/**	 * 读取当前记录值	 *	 * @param name 字段名	 * @param default_value 值为null时的替代值	 * @return 指定字段值 / default_value	 */	public final Long getValue(String name, Long default_value) {		try {			if (result == null) {				if (namedsql.isCall()) {					CallableStatement callable = (CallableStatement) statement;					for (int index = 0; index < namedsql.names.length; index++) {						if (namedsql.names[index].equals(name) && namedsql.types[index] != null) {							long value = callable.getLong(index + 1);							if (callable.wasNull()) {								return default_value;							}							return value;						}					}				}				throw new SQLException("没有结果集，也没有可返回的参数");			}			long value = result.getLong(name);			if (result.wasNull()) {				return default_value;			}			return value;		} catch (SQLException e) {			throw new RuntimeException(e);		}	}	/**	 * 读取当前记录值	 *	 * @param name 字段名	 * @param default_value 值为null时的替代值	 * @return 指定字段值 / default_value	 */	public final float getValue(String name, float default_value) {		try {			if (result == null) {				if (namedsql.isCall()) {					CallableStatement callable = (CallableStatement) statement;					for (int index = 0; index < namedsql.names.length; index++) {						if (namedsql.names[index].equals(name) && namedsql.types[index] != null) {							float value = callable.getFloat(index + 1);							if (callable.wasNull()) {								return default_value;							}							return value;						}					}				}				throw new SQLException("没有结果集，也没有可返回的参数");			}			float value = result.getFloat(name);			if (result.wasNull()) {				return default_value;			}			return value;		} catch (SQLException e) {			throw new RuntimeException(e);		}	}	/**	 * 读取当前记录值	 *	 * @param name 字段名	 * @param default_value 值为null时的替代值	 * @return 指定字段值 / default_value	 */	public final Float getValue(String name, Float default_value) {		try {			if (result == null) {				if (namedsql.isCall()) {					CallableStatement callable = (CallableStatement) statement;					for (int index = 0; index < namedsql.names.length; index++) {						if (namedsql.names[index].equals(name) && namedsql.types[index] != null) {							float value = callable.getFloat(index + 1);							if (callable.wasNull()) {								return default_value;							}							return value;						}					}				}				throw new SQLException("没有结果集，也没有可返回的参数");			}			float value = result.getFloat(name);			if (result.wasNull()) {				return default_value;			}			return value;		} catch (SQLException e) {			throw new RuntimeException(e);		}	}	/**	 * 读取当前记录值	 *	 * @param name 字段名	 * @param default_value 值为null时的替代值	 * @return 指定字段值 / default_value	 */	public final double getValue(String name, double default_value) {		try {			if (result == null) {				if (namedsql.isCall()) {					CallableStatement callable = (CallableStatement) statement;					for (int index = 0; index < namedsql.names.length; index++) {						if (namedsql.names[index].equals(name) && namedsql.types[index] != null) {							double value = callable.getDouble(index + 1);							if (callable.wasNull()) {								return default_value;							}							return value;						}					}				}				throw new SQLException("没有结果集，也没有可返回的参数");			}			double value = result.getDouble(name);			if (result.wasNull()) {				return default_value;			}			return value;		} catch (SQLException e) {			throw new RuntimeException(e);		}	}	/**	 * 读取当前记录值	 *	 * @param name 字段名	 * @param default_value 值为null时的替代值	 * @return 指定字段值 / default_value	 */	public final Double getValue(String name, Double default_value) {		try {			if (result == null) {				if (namedsql.isCall()) {					CallableStatement callable = (CallableStatement) statement;					for (int index = 0; index < namedsql.names.length; index++) {						if (namedsql.names[index].equals(name) && namedsql.types[index] != null) {							double value = callable.getDouble(index + 1);							if (callable.wasNull()) {								return default_value;							}							return value;						}					}				}				throw new SQLException("没有结果集，也没有可返回的参数");			}			double value = result.getDouble(name);			if (result.wasNull()) {				return default_value;			}			return value;		} catch (SQLException e) {			throw new RuntimeException(e);		}	}	/**	 * 读取当前记录值	 *	 * @param name 字段名	 * @param default_value 值为null时的替代值	 * @return 指定字段值 / default_value	 */	public final String getValue(String name, String default_value) {		try {			if (result == null) {				if (namedsql.isCall()) {					CallableStatement callable = (CallableStatement) statement;					for (int index = 0; index < namedsql.names.length; index++) {						if (namedsql.names[index].equals(name) && namedsql.types[index] != null) {							String value = callable.getString(index + 1);							if (callable.wasNull()) {								return default_value;							}							return value;						}					}				}				throw new SQLException("没有结果集，也没有可返回的参数");			}			String value = result.getString(name);			if (result.wasNull()) {				return default_value;			}			return value;		} catch (SQLException e) {			throw new RuntimeException(e);		}	}	/**	 * 读取当前记录值	 *	 * @param name 字段名	 * @param default_value 值为null时的替代值	 * @return 指定字段值 / default_value	 */	public final java.util.Date getValue(String name, java.util.Date default_value) {		try {			if (result == null) {				if (namedsql.isCall()) {					CallableStatement callable = (CallableStatement) statement;					for (int index = 0; index < namedsql.names.length; index++) {						if (namedsql.names[index].equals(name) && namedsql.types[index] != null) {							java.util.Date value = callable.getDate(index + 1);							if (callable.wasNull()) {								return default_value;							}							return value;						}					}				}				throw new SQLException("没有结果集，也没有可返回的参数");			}			java.util.Date value = result.getDate(name);			if (result.wasNull()) {				return default_value;			}			return value;		} catch (SQLException e) {			throw new RuntimeException(e);		}	}	/**	 * 读取当前记录值	 *	 * @param name 字段名	 * @param default_value 值为null时的替代值	 * @return 指定字段值 / default_value	 */	public final LocalTime getValue(String name, LocalTime default_value) {		try {			if (result == null) {				if (namedsql.isCall()) {					CallableStatement callable = (CallableStatement) statement;					for (int index = 0; index < namedsql.names.length; index++) {						if (namedsql.names[index].equals(name) && namedsql.types[index] != null) {							Time value = callable.getTime(index + 1);							if (callable.wasNull()) {								return default_value;							}							return value.toLocalTime();						}					}				}				throw new SQLException("没有结果集，也没有可返回的参数");			}			Time value = result.getTime(name);			if (result.wasNull()) {				return default_value;			}			return value.toLocalTime();		} catch (SQLException e) {			throw new RuntimeException(e);		}	}	/**	 * 读取当前记录值	 *	 * @param name 字段名	 * @param default_value 值为null时的替代值	 * @return 指定字段值 / default_value	 */	public final LocalDate getValue(String name, LocalDate default_value) {		try {			if (result == null) {				if (namedsql.isCall()) {					CallableStatement callable = (CallableStatement) statement;					for (int index = 0; index < namedsql.names.length; index++) {						if (namedsql.names[index].equals(name) && namedsql.types[index] != null) {							Date value = callable.getDate(index + 1);							if (callable.wasNull()) {								return default_value;							}							return value.toLocalDate();						}					}				}				throw new SQLException("没有结果集，也没有可返回的参数");			}			Date value = result.getDate(name);			if (result.wasNull()) {				return default_value;			}			return value.toLocalDate();		} catch (SQLException e) {			throw new RuntimeException(e);		}	}	/**	 * 读取当前记录值	 *	 * @param name 字段名	 * @param default_value 值为null时的替代值	 * @return 指定字段值 / default_value	 */	public final LocalDateTime getValue(String name, LocalDateTime default_value) {		try {			if (result == null) {				if (namedsql.isCall()) {					CallableStatement callable = (CallableStatement) statement;					for (int index = 0; index < namedsql.names.length; index++) {						if (namedsql.names[index].equals(name) && namedsql.types[index] != null) {							Timestamp value = callable.getTimestamp(index + 1);							if (callable.wasNull()) {								return default_value;							}							return value.toLocalDateTime();						}					}				}				throw new SQLException("没有结果集，也没有可返回的参数");			}			Timestamp value = result.getTimestamp(name);			if (result.wasNull()) {				return default_value;			}			return value.toLocalDateTime();		} catch (SQLException e) {			throw new RuntimeException(e);		}	}	/**	 * 读取当前记录值	 *	 * @param name 字段名	 * @param default_value 值为null时的替代值	 * @return 指定字段值 / default_value	 */	public final BigDecimal getValue(String name, BigDecimal default_value) {		try {			if (result == null) {				if (namedsql.isCall()) {					CallableStatement callable = (CallableStatement) statement;					for (int index = 0; index < namedsql.names.length; index++) {						if (namedsql.names[index].equals(name) && namedsql.types[index] != null) {							BigDecimal value = callable.getBigDecimal(index + 1);							if (callable.wasNull()) {								return default_value;							}							return value;						}					}				}				throw new SQLException("没有结果集，也没有可返回的参数");			}			BigDecimal value = result.getBigDecimal(name);			if (result.wasNull()) {				return default_value;			}			return value;		} catch (SQLException e) {			throw new RuntimeException(e);		}	}	/**	 * 获取命名SQL	 */	public NamedSQL getNamedSQL() {		return namedsql;	}	/**	 * 可回收的参数缓冲区，归还时递增代数	 */	private static final class Buffer {		Object[] values;		int generation;	}}
\ No newline at end of file
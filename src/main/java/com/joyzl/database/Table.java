@@ -0,0 +1,831 @@
+/*
+ * Copyright © 2017-2025 重庆骄智科技有限公司.
+ * 本软件根据 Apache License 2.0 开源，详见 LICENSE 文件。
+ */
+package com.joyzl.database;
+
+import java.math.BigDecimal;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLXML;
+import java.sql.Struct;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 列式存储的只读结果集，由 {@link Statement#materialize()} 创建
+ * <p>
+ * 创建后不再需要数据库连接，可缓存并在多个线程间共享；整数和浮点数字段以基本类型数组存储，
+ * 日期时间字段以整数存储，字符串字段以字典编码存储，null 值以位集记录；
+ * 依赖连接的字段值在创建时读取，BLOB 转换为 byte[]，CLOB 和数据库特有类型转换为 String，ARRAY 转换为 Object[]。
+ * 通过 {@link #cursor()} 获取游标，以与 Statement 相同的 nextRecord()/getValue(name, default) 方式读取，
+ * 每个线程应使用各自的游标。
+ * </p>
+ *
+ * <pre>
+ * <code>
+ * Table table;
+ * try (Statement statement = Database.instance("SELECT * FROM `users`")) {
+ *     statement.execute();
+ *     table = statement.materialize();
+ * }
+ *
+ * Table.Cursor cursor = table.cursor();
+ * while (cursor.nextRecord()) {
+ *     cursor.getValue("name", "");
+ * }
+ * </code>
+ * </pre>
+ */
+public final class Table {
+
+	// 字段存储方式
+	private final static int LONG = 1;
+	private final static int DOUBLE = 2;
+	private final static int STRING = 3;
+	private final static int DATE = 4;
+	private final static int TIME = 5;
+	private final static int TIMESTAMP = 6;
+	private final static int OBJECT = 7;
+
+	/**
+	 * 没有字段的空结果集
+	 */
+	final static Table EMPTY = new Table(new String[0], new Column[0], 0);
+
+	private final String[] names;
+	private final Column[] columns;
+	private final int size;
+
+	private Table(String[] names, Column[] columns, int size) {
+		this.names = names;
+		this.columns = columns;
+		this.size = size;
+	}
+
+	/**
+	 * 从结果集当前位置读取所有记录，通过 {@link Statement#nextRecord()} 移动以支持多个分片的结果集
+	 */
+	static Table build(Statement statement, ResultSet result) throws SQLException {
+		final ResultSetMetaData meta = result.getMetaData();
+		final String[] names = new String[meta.getColumnCount()];
+		final Column[] columns = new Column[names.length];
+		for (int index = 0; index < names.length; index++) {
+			names[index] = meta.getColumnLabel(index + 1);
+			columns[index] = new Column(kind(meta, index + 1));
+		}
+
+		int size = 0;
+		while (statement.nextRecord()) {
+			result = statement.result();
+			for (int index = 0; index < columns.length; index++) {
+				columns[index].read(result, index + 1, size);
+			}
+			size++;
+		}
+		for (int index = 0; index < columns.length; index++) {
+			columns[index].trim(size);
+		}
+		return new Table(names, columns, size);
+	}
+
+	private static int kind(ResultSetMetaData meta, int column) throws SQLException {
+		switch (meta.getColumnType(column)) {
+			case Types.BIT:
+			case Types.BOOLEAN:
+			case Types.TINYINT:
+			case Types.SMALLINT:
+			case Types.INTEGER:
+			case Types.BIGINT:
+				return LONG;
+			case Types.REAL:
+			case Types.FLOAT:
+			case Types.DOUBLE:
+				return DOUBLE;
+			case Types.NUMERIC:
+			case Types.DECIMAL:
+				// 无小数位且不超过18位的数值可用 long 存储，例如 Oracle NUMBER(10)
+				if (meta.getScale(column) == 0 && meta.getPrecision(column) > 0 && meta.getPrecision(column) <= 18) {
+					return LONG;
+				}
+				return OBJECT;
+			case Types.CHAR:
+			case Types.VARCHAR:
+			case Types.LONGVARCHAR:
+			case Types.NCHAR:
+			case Types.NVARCHAR:
+			case Types.LONGNVARCHAR:
+			case Types.CLOB:
+			case Types.NCLOB:
+				return STRING;
+			case Types.DATE:
+				return DATE;
+			case Types.TIME:
+				return TIME;
+			case Types.TIMESTAMP:
+				return TIMESTAMP;
+			default:
+				return OBJECT;
+		}
+	}
+
+	/**
+	 * 获取记录数量
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * 获取字段名
+	 */
+	public String[] getNames() {
+		return names.clone();
+	}
+
+	/**
+	 * 获取新的游标，游标位于第一条记录之前
+	 */
+	public Cursor cursor() {
+		return new Cursor();
+	}
+
+	private int column(String name) {
+		for (int index = 0; index < names.length; index++) {
+			if (names[index].equals(name)) {
+				return index;
+			}
+		}
+		for (int index = 0; index < names.length; index++) {
+			if (names[index].equalsIgnoreCase(name)) {
+				return index;
+			}
+		}
+		throw new IllegalArgumentException("字段不存在:" + name);
+	}
+
+	/**
+	 * 字段存储，只使用与存储方式对应的数组
+	 */
+	private static final class Column {
+		final int kind;
+		final BitSet nulls = new BitSet();
+		long[] longs;
+		double[] doubles;
+		int[] nanos;
+		int[] codes;
+		String[] dictionary;
+		Object[] objects;
+		// 构建时使用的字典索引
+		Map<String, Integer> encoder;
+
+		Column(int kind) {
+			this.kind = kind;
+			switch (kind) {
+				case LONG:
+				case DATE:
+				case TIME:
+					longs = new long[16];
+					break;
+				case DOUBLE:
+					doubles = new double[16];
+					break;
+				case TIMESTAMP:
+					longs = new long[16];
+					nanos = new int[16];
+					break;
+				case STRING:
+					codes = new int[16];
+					dictionary = new String[16];
+					encoder = new HashMap<>();
+					break;
+				default:
+					objects = new Object[16];
+			}
+		}
+
+		void read(ResultSet result, int column, int row) throws SQLException {
+			switch (kind) {
+				case LONG:
+					if (row == longs.length) {
+						longs = Arrays.copyOf(longs, row << 1);
+					}
+					longs[row] = result.getLong(column);
+					break;
+				case DOUBLE:
+					if (row == doubles.length) {
+						doubles = Arrays.copyOf(doubles, row << 1);
+					}
+					doubles[row] = result.getDouble(column);
+					break;
+				case DATE: {
+					if (row == longs.length) {
+						longs = Arrays.copyOf(longs, row << 1);
+					}
+					final LocalDate value = result.getObject(column, LocalDate.class);
+					if (value != null) {
+						longs[row] = value.toEpochDay();
+					}
+					break;
+				}
+				case TIME: {
+					if (row == longs.length) {
+						longs = Arrays.copyOf(longs, row << 1);
+					}
+					final LocalTime value = result.getObject(column, LocalTime.class);
+					if (value != null) {
+						longs[row] = value.toNanoOfDay();
+					}
+					break;
+				}
+				case TIMESTAMP: {
+					if (row == longs.length) {
+						longs = Arrays.copyOf(longs, row << 1);
+						nanos = Arrays.copyOf(nanos, row << 1);
+					}
+					final LocalDateTime value = result.getObject(column, LocalDateTime.class);
+					if (value != null) {
+						longs[row] = value.toEpochSecond(ZoneOffset.UTC);
+						nanos[row] = value.getNano();
+					}
+					break;
+				}
+				case STRING: {
+					if (row == codes.length) {
+						codes = Arrays.copyOf(codes, row << 1);
+					}
+					final String value = result.getString(column);
+					if (value != null) {
+						Integer code = encoder.get(value);
+						if (code == null) {
+							code = encoder.size();
+							if (code == dictionary.length) {
+								dictionary = Arrays.copyOf(dictionary, code << 1);
+							}
+							dictionary[code] = value;
+							encoder.put(value, code);
+						}
+						codes[row] = code;
+					}
+					break;
+				}
+				default:
+					if (row == objects.length) {
+						objects = Arrays.copyOf(objects, row << 1);
+					}
+					final Object value = result.getObject(column);
+					// 数据库特有类型可能依赖连接
+					objects[row] = vendor(value) ? result.getString(column) : materialize(value);
+			}
+			if (result.wasNull()) {
+				nulls.set(row);
+			}
+		}
+
+		/**
+		 * 读取依赖连接的值并释放资源
+		 */
+		private static Object materialize(Object value) throws SQLException {
+			if (value instanceof Blob) {
+				final Blob blob = (Blob) value;
+				try {
+					return blob.getBytes(1, (int) blob.length());
+				} finally {
+					blob.free();
+				}
+			}
+			if (value instanceof Clob) {
+				final Clob clob = (Clob) value;
+				try {
+					return clob.getSubString(1, (int) clob.length());
+				} finally {
+					clob.free();
+				}
+			}
+			if (value instanceof SQLXML) {
+				final SQLXML xml = (SQLXML) value;
+				try {
+					return xml.getString();
+				} finally {
+					xml.free();
+				}
+			}
+			if (value instanceof Array) {
+				final Array array = (Array) value;
+				try {
+					return elements(array.getArray());
+				} finally {
+					array.free();
+				}
+			}
+			if (value instanceof Struct) {
+				return elements(((Struct) value).getAttributes());
+			}
+			return value;
+		}
+
+		/**
+		 * 是否为数据库特有类型，JDBC 接口类型除外
+		 */
+		private static boolean vendor(Object value) {
+			if (value == null || value.getClass().isArray() || value.getClass().getName().startsWith("java.")) {
+				return false;
+			}
+			return !(value instanceof Blob || value instanceof Clob || value instanceof SQLXML || value instanceof Array || value instanceof Struct);
+		}
+
+		/**
+		 * 数组元素转换为 Object[]，元素也可能依赖连接
+		 */
+		private static Object[] elements(Object array) throws SQLException {
+			final Object[] elements = new Object[java.lang.reflect.Array.getLength(array)];
+			for (int index = 0; index < elements.length; index++) {
+				final Object element = java.lang.reflect.Array.get(array, index);
+				elements[index] = vendor(element) ? element.toString() : materialize(element);
+			}
+			return elements;
+		}
+
+		void trim(int size) {
+			if (longs != null) {
+				longs = Arrays.copyOf(longs, size);
+			}
+			if (doubles != null) {
+				doubles = Arrays.copyOf(doubles, size);
+			}
+			if (nanos != null) {
+				nanos = Arrays.copyOf(nanos, size);
+			}
+			if (codes != null) {
+				codes = Arrays.copyOf(codes, size);
+				dictionary = Arrays.copyOf(dictionary, encoder.size());
+				encoder = null;
+			}
+			if (objects != null) {
+				objects = Arrays.copyOf(objects, size);
+			}
+		}
+
+		long getLong(int row) {
+			switch (kind) {
+				case LONG:
+					return longs[row];
+				case DOUBLE:
+					return (long) doubles[row];
+				case STRING:
+					return Long.parseLong(dictionary[codes[row]]);
+				case OBJECT:
+					if (objects[row] instanceof Number) {
+						return ((Number) objects[row]).longValue();
+					}
+					break;
+			}
+			throw mismatch("long");
+		}
+
+		double getDouble(int row) {
+			switch (kind) {
+				case LONG:
+					return longs[row];
+				case DOUBLE:
+					return doubles[row];
+				case STRING:
+					return Double.parseDouble(dictionary[codes[row]]);
+				case OBJECT:
+					if (objects[row] instanceof Number) {
+						return ((Number) objects[row]).doubleValue();
+					}
+					break;
+			}
+			throw mismatch("double");
+		}
+
+		/**
+		 * 字符串为 true/false 或数值，不能转换时返回 null
+		 */
+		Boolean getBoolean(int row) {
+			switch (kind) {
+				case LONG:
+					return longs[row] != 0;
+				case DOUBLE:
+					return doubles[row] != 0;
+				case STRING:
+					return parse(dictionary[codes[row]]);
+				case OBJECT:
+					if (objects[row] instanceof Boolean) {
+						return (Boolean) objects[row];
+					}
+					if (objects[row] instanceof Number) {
+						return ((Number) objects[row]).doubleValue() != 0;
+					}
+					if (objects[row] instanceof String) {
+						return parse((String) objects[row]);
+					}
+					break;
+			}
+			throw mismatch("boolean");
+		}
+
+		private static Boolean parse(String value) {
+			value = value.trim();
+			if ("true".equalsIgnoreCase(value)) {
+				return Boolean.TRUE;
+			}
+			if ("false".equalsIgnoreCase(value)) {
+				return Boolean.FALSE;
+			}
+			try {
+				return new BigDecimal(value).signum() != 0;
+			} catch (NumberFormatException e) {
+				return null;
+			}
+		}
+
+		LocalDate getLocalDate(int row) {
+			switch (kind) {
+				case DATE:
+					return LocalDate.ofEpochDay(longs[row]);
+				case TIMESTAMP:
+					return getLocalDateTime(row).toLocalDate();
+				default:
+					throw mismatch("LocalDate");
+			}
+		}
+
+		LocalTime getLocalTime(int row) {
+			switch (kind) {
+				case TIME:
+					return LocalTime.ofNanoOfDay(longs[row]);
+				case TIMESTAMP:
+					return getLocalDateTime(row).toLocalTime();
+				default:
+					throw mismatch("LocalTime");
+			}
+		}
+
+		LocalDateTime getLocalDateTime(int row) {
+			switch (kind) {
+				case TIMESTAMP:
+					return LocalDateTime.ofEpochSecond(longs[row], nanos[row], ZoneOffset.UTC);
+				case DATE:
+					return LocalDate.ofEpochDay(longs[row]).atStartOfDay();
+				default:
+					throw mismatch("LocalDateTime");
+			}
+		}
+
+		Object getObject(int row) {
+			switch (kind) {
+				case LONG:
+					return longs[row];
+				case DOUBLE:
+					return doubles[row];
+				case STRING:
+					return dictionary[codes[row]];
+				case DATE:
+					return getLocalDate(row);
+				case TIME:
+					return getLocalTime(row);
+				case TIMESTAMP:
+					return getLocalDateTime(row);
+				default:
+					return objects[row];
+			}
+		}
+
+		private IllegalStateException mismatch(String type) {
+			return new IllegalStateException("字段类型不能转换为 " + type);
+		}
+	}
+
+	/**
+	 * 游标，非线程安全
+	 */
+	public final class Cursor {
+
+		private int row = -1;
+
+		private Cursor() {
+		}
+
+		/**
+		 * 移动到下一条记录
+		 *
+		 * @return 有记录可读 true / false 没有记录可读
+		 */
+		public boolean nextRecord() {
+			if (row < size) {
+				row++;
+			}
+			return row < size;
+		}
+
+		/**
+		 * 移动到第一条记录之前
+		 */
+		public void reset() {
+			row = -1;
+		}
+
+		private Column get(String name) {
+			if (row < 0 || row >= size) {
+				throw new IllegalStateException("游标未位于记录");
+			}
+			final Column column = columns[column(name)];
+			return column.nulls.get(row) ? null : column;
+		}
+
+		/**
+		 * 读取当前记录值
+		 *
+		 * @param name 字段名
+		 * @param default_value 值为null时的替代值
+		 * @return 指定字段值 / default_value
+		 */
+		public boolean getValue(String name, boolean default_value) {
+			final Column column = get(name);
+			if (column == null) {
+				return default_value;
+			}
+			final Boolean value = column.getBoolean(row);
+			return value == null ? default_value : value;
+		}
+
+		/**
+		 * 读取当前记录值
+		 *
+		 * @param name 字段名
+		 * @param default_value 值为null时的替代值
+		 * @return 指定字段值 / default_value
+		 */
+		public Boolean getValue(String name, Boolean default_value) {
+			final Column column = get(name);
+			if (column == null) {
+				return default_value;
+			}
+			final Boolean value = column.getBoolean(row);
+			return value == null ? default_value : value;
+		}
+
+		/**
+		 * 读取当前记录值
+		 *
+		 * @param name 字段名
+		 * @param default_value 值为null时的替代值
+		 * @return 指定字段值 / default_value
+		 */
+		public short getValue(String name, short default_value) {
+			final Column column = get(name);
+			return column == null ? default_value : (short) column.getLong(row);
+		}
+
+		/**
+		 * 读取当前记录值
+		 *
+		 * @param name 字段名
+		 * @param default_value 值为null时的替代值
+		 * @return 指定字段值 / default_value
+		 */
+		public Short getValue(String name, Short default_value) {
+			final Column column = get(name);
+			return column == null ? default_value : Short.valueOf((short) column.getLong(row));
+		}
+
+		/**
+		 * 读取当前记录值
+		 *
+		 * @param name 字段名
+		 * @param default_value 值为null时的替代值
+		 * @return 指定字段值 / default_value
+		 */
+		public int getValue(String name, int default_value) {
+			final Column column = get(name);
+			return column == null ? default_value : (int) column.getLong(row);
+		}
+
+		/**
+		 * 读取当前记录值
+		 *
+		 * @param name 字段名
+		 * @param default_value 值为null时的替代值
+		 * @return 指定字段值 / default_value
+		 */
+		public Integer getValue(String name, Integer default_value) {
+			final Column column = get(name);
+			return column == null ? default_value : Integer.valueOf((int) column.getLong(row));
+		}
+
+		/**
+		 * 读取当前记录值
+		 *
+		 * @param name 字段名
+		 * @param default_value 值为null时的替代值
+		 * @return 指定字段值 / default_value
+		 */
+		public long getValue(String name, long default_value) {
+			final Column column = get(name);
+			return column == null ? default_value : column.getLong(row);
+		}
+
+		/**
+		 * 读取当前记录值
+		 *
+		 * @param name 字段名
+		 * @param default_value 值为null时的替代值
+		 * @return 指定字段值 / default_value
+		 */
+		public Long getValue(String name, Long default_value) {
+			final Column column = get(name);
+			return column == null ? default_value : Long.valueOf(column.getLong(row));
+		}
+
+		/**
+		 * 读取当前记录值
+		 *
+		 * @param name 字段名
+		 * @param default_value 值为null时的替代值
+		 * @return 指定字段值 / default_value
+		 */
+		public float getValue(String name, float default_value) {
+			final Column column = get(name);
+			return column == null ? default_value : (float) column.getDouble(row);
+		}
+
+		/**
+		 * 读取当前记录值
+		 *
+		 * @param name 字段名
+		 * @param default_value 值为null时的替代值
+		 * @return 指定字段值 / default_value
+		 */
+		public Float getValue(String name, Float default_value) {
+			final Column column = get(name);
+			return column == null ? default_value : Float.valueOf((float) column.getDouble(row));
+		}
+
+		/**
+		 * 读取当前记录值
+		 *
+		 * @param name 字段名
+		 * @param default_value 值为null时的替代值
+		 * @return 指定字段值 / default_value
+		 */
+		public double getValue(String name, double default_value) {
+			final Column column = get(name);
+			return column == null ? default_value : column.getDouble(row);
+		}
+
+		/**
+		 * 读取当前记录值
+		 *
+		 * @param name 字段名
+		 * @param default_value 值为null时的替代值
+		 * @return 指定字段值 / default_value
+		 */
+		public Double getValue(String name, Double default_value) {
+			final Column column = get(name);
+			return column == null ? default_value : Double.valueOf(column.getDouble(row));
+		}
+
+		/**
+		 * 读取当前记录值，BLOB 和 ARRAY 等字段不能转换为字符串
+		 *
+		 * @param name 字段名
+		 * @param default_value 值为null或不能转换时的替代值
+		 * @return 指定字段值 / default_value
+		 */
+		public String getValue(String name, String default_value) {
+			final Column column = get(name);
+			if (column == null) {
+				return default_value;
+			}
+			final Object value = column.getObject(row);
+			if (value.getClass().isArray()) {
+				return default_value;
+			}
+			return value.toString();
+		}
+
+		/**
+		 * 读取当前记录值，与 {@link Statement#getValue(String, java.util.Date)} 一致返回日期部分
+		 *
+		 * @param name 字段名
+		 * @param default_value 值为null时的替代值
+		 * @return 指定字段值 / default_value
+		 */
+		public java.util.Date getValue(String name, java.util.Date default_value) {
+			final Column column = get(name);
+			return column == null ? default_value : java.sql.Date.valueOf(column.getLocalDate(row));
+		}
+
+		/**
+		 * 读取当前记录值
+		 *
+		 * @param name 字段名
+		 * @param default_value 值为null时的替代值
+		 * @return 指定字段值 / default_value
+		 */
+		public LocalTime getValue(String name, LocalTime default_value) {
+			final Column column = get(name);
+			return column == null ? default_value : column.getLocalTime(row);
+		}
+
+		/**
+		 * 读取当前记录值
+		 *
+		 * @param name 字段名
+		 * @param default_value 值为null时的替代值
+		 * @return 指定字段值 / default_value
+		 */
+		public LocalDate getValue(String name, LocalDate default_value) {
+			final Column column = get(name);
+			return column == null ? default_value : column.getLocalDate(row);
+		}
+
+		/**
+		 * 读取当前记录值
+		 *
+		 * @param name 字段名
+		 * @param default_value 值为null时的替代值
+		 * @return 指定字段值 / default_value
+		 */
+		public LocalDateTime getValue(String name, LocalDateTime default_value) {
+			final Column column = get(name);
+			return column == null ? default_value : column.getLocalDateTime(row);
+		}
+
+		/**
+		 * 读取当前记录值
+		 *
+		 * @param name 字段名
+		 * @param default_value 值为null时的替代值
+		 * @return 指定字段值 / default_value
+		 */
+		public BigDecimal getValue(String name, BigDecimal default_value) {
+			final Column column = get(name);
+			if (column == null) {
+				return default_value;
+			}
+			switch (column.kind) {
+				case LONG:
+					return BigDecimal.valueOf(column.longs[row]);
+				case DOUBLE:
+					return BigDecimal.valueOf(column.doubles[row]);
+				case STRING:
+					return new BigDecimal(column.dictionary[column.codes[row]]);
+				default:
+					if (column.getObject(row) instanceof BigDecimal) {
+						return (BigDecimal) column.getObject(row);
+					}
+					return new BigDecimal(column.getObject(row).toString());
+			}
+		}
+
+		/**
+		 * 读取当前记录值
+		 *
+		 * @param name 字段名
+		 * @param default_value 值为null时的替代值
+		 * @return 指定字段值 / default_value
+		 */
+		public byte[] getValue(String name, byte[] default_value) {
+			final Column column = get(name);
+			if (column == null) {
+				return default_value;
+			}
+			if (column.kind == OBJECT && column.objects[row] instanceof byte[]) {
+				return ((byte[]) column.objects[row]).clone();
+			}
+			throw new IllegalStateException("字段类型不能转换为 byte[]");
+		}
+
+		/**
+		 * 读取当前记录值，ARRAY 字段在创建时转换为 Object[]
+		 *
+		 * @param name 字段名
+		 * @param default_value 值为null时的替代值
+		 * @return 指定字段值 / default_value
+		 */
+		public Object[] getValue(String name, Object[] default_value) {
+			final Column column = get(name);
+			if (column == null) {
+				return default_value;
+			}
+			if (column.kind == OBJECT && column.objects[row] instanceof Object[]) {
+				return ((Object[]) column.objects[row]).clone();
+			}
+			throw new IllegalStateException("字段类型不能转换为 Object[]");
+		}
+	}
+}
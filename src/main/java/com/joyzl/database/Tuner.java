@@ -0,0 +1,226 @@
+/*
+ * Copyright © 2017-2025 重庆骄智科技有限公司.
+ * 本软件根据 Apache License 2.0 开源，详见 LICENSE 文件。
+ */
+package com.joyzl.database;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 自适应调节，根据运行时观察到的负载调节结果集读取数量和连接池空闲连接数量
+ * <p>
+ * 结果集读取数量：记录每个 {@link NamedSQL} 最近读取的记录数量，以第90百分位数设置 fetch size，
+ * 使大多数查询一次往返即可读取全部记录；调用 {@link Statement#streaming()} 的语句不受影响。<br>
+ * 连接池：每秒检查一次，借出连接时空闲队列为空(需要新建连接)或平均等待时间过长则加法增加空闲连接上限，
+ * 期间借出连接峰值远小于上限则乘法减少上限(AIMD)，上限保持在最小值与初始化指定的最大连接数之间。<br>
+ * 每次调节都记录在决策日志中，参考 {@link #getDecisions()}。
+ * </p>
+ *
+ * <pre>
+ * <code>
+ * Tuner tuner = Database.tuner(4);
+ * for (Tuner.Decision decision : tuner.getDecisions()) {
+ *     System.out.println(decision);
+ * }
+ * </code>
+ * </pre>
+ */
+public final class Tuner {
+
+	/**
+	 * 调节决策
+	 *
+	 * @param time 时间(毫秒)
+	 * @param target 调节对象，SQL语句或连接字符串
+	 * @param name 调节参数 fetch / idle
+	 * @param from 原值
+	 * @param to 新值
+	 * @param reason 原因
+	 */
+	public record Decision(long time, String target, String name, int from, int to, String reason) {
+	}
+
+	// 每个语句保留的样本数量，必须为2的幂
+	private final static int SAMPLES = 32;
+	// 每收集多少样本计算一次
+	private final static int INTERVAL = 16;
+	private final static int MAX_FETCH = 10000;
+	// 平均等待超过此时间(纳秒)视为连接不足
+	private final static long WAIT = TimeUnit.MILLISECONDS.toNanos(1);
+	// 决策日志保留数量
+	private final static int LOGS = 256;
+
+	private final Pool pool;
+	private final int minimum;
+	private final Map<NamedSQL, Rows> rows = new ConcurrentHashMap<>();
+	private final Decision[] decisions = new Decision[LOGS];
+	private long decision;
+	private final ScheduledFuture<?> timer;
+
+	// 上次检查时的连接池统计
+	private long borrowed;
+	private long missed;
+	private long waited;
+
+	Tuner(Pool pool, int minimum) {
+		if (minimum < 1 || minimum > pool.getMaximum()) {
+			throw new IllegalArgumentException("最小连接数超出范围 1~" + pool.getMaximum() + ":" + minimum);
+		}
+		this.pool = pool;
+		this.minimum = minimum;
+		borrowed = pool.getBorrowed();
+		missed = pool.getMissed();
+		waited = pool.getWaited();
+		timer = Database.scheduler().scheduleWithFixedDelay(this::adjust, 1, 1, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * 记录语句读取的记录数量，调节错误不抛出，不影响语句执行和关闭
+	 */
+	final void record(NamedSQL sql, int count) {
+		try {
+			sample(sql, count);
+		} catch (RuntimeException e) {
+			// 忽略错误
+		}
+	}
+
+	private void sample(NamedSQL sql, int count) {
+		final Rows r = rows.computeIfAbsent(sql.getBase(), k -> new Rows());
+		final int from, to;
+		synchronized (r) {
+			r.samples[r.next] = count;
+			r.next = (r.next + 1) & (SAMPLES - 1);
+			if (r.next == 0) {
+				r.filled = true;
+			}
+			if (++r.interval < INTERVAL) {
+				return;
+			}
+			r.interval = 0;
+			final int[] sorted = Arrays.copyOf(r.samples, r.filled ? SAMPLES : r.next);
+			Arrays.sort(sorted);
+			// 多读取一条以便驱动判断结果集结束
+			int fetch = sorted[(sorted.length * 9 - 1) / 10] + 1;
+			if (fetch > MAX_FETCH) {
+				fetch = MAX_FETCH;
+			}
+			// 变化不超过25%时不调整
+			if (r.fetch > 0 && Math.abs(fetch - r.fetch) * 4 <= r.fetch) {
+				return;
+			}
+			from = r.fetch;
+			to = r.fetch = fetch;
+		}
+		log(sql.getNamedSQL(), "fetch", from, to, "P90=" + (to - 1) + " rows");
+	}
+
+	/**
+	 * 获取语句的 fetch size
+	 *
+	 * @return 0 未确定，使用驱动默认值
+	 */
+	final int fetch(NamedSQL sql) {
+		final Rows r = rows.get(sql.getBase());
+		return r == null ? 0 : r.fetch;
+	}
+
+	/**
+	 * 调节连接池空闲连接上限，出错时忽略本次调节，避免定时任务被取消
+	 */
+	private void adjust() {
+		try {
+			balance();
+		} catch (RuntimeException e) {
+			// 忽略错误
+		}
+	}
+
+	private void balance() {
+		final long b = pool.getBorrowed();
+		final long m = pool.getMissed();
+		final long w = pool.getWaited();
+		final int peak = pool.peak();
+		final long borrows = b - borrowed;
+		final long misses = m - missed;
+		final long wait = borrows > 0 ? (w - waited) / borrows : 0;
+		borrowed = b;
+		missed = m;
+		waited = w;
+
+		final int limit = pool.getLimit();
+		if (misses > 0 || wait > WAIT) {
+			// 加法增加
+			if (limit < pool.getMaximum()) {
+				pool.setLimit(limit + 1);
+				log(pool.getURL(), "idle", limit, limit + 1, "misses=" + misses + " wait=" + wait / 1000 + "us");
+			}
+		} else if (peak * 2 < limit && limit > minimum) {
+			// 乘法减少
+			final int to = Math.max(minimum, Math.max(peak, limit * 3 / 4));
+			if (to < limit) {
+				pool.setLimit(to);
+				pool.shrink();
+				log(pool.getURL(), "idle", limit, to, "peak=" + peak);
+			}
+		}
+	}
+
+	private void log(String target, String name, int from, int to, String reason) {
+		final Decision d = new Decision(System.currentTimeMillis(), target, name, from, to, reason);
+		synchronized (decisions) {
+			decisions[(int) (decision++ % LOGS)] = d;
+		}
+	}
+
+	/**
+	 * 停止调节，连接池恢复初始化指定的最大空闲连接数量
+	 */
+	final void stop() {
+		timer.cancel(false);
+		pool.setLimit(pool.getMaximum());
+	}
+
+	/**
+	 * 获取最近的调节决策，按时间顺序
+	 *
+	 * @return {@code List<Decision>} 最多保留256条
+	 */
+	public List<Decision> getDecisions() {
+		synchronized (decisions) {
+			final int size = (int) Math.min(decision, LOGS);
+			final List<Decision> list = new ArrayList<>(size);
+			for (long index = decision - size; index < decision; index++) {
+				list.add(decisions[(int) (index % LOGS)]);
+			}
+			return list;
+		}
+	}
+
+	/**
+	 * 获取语句当前的 fetch size
+	 *
+	 * @param sql 命名参数SQL语句
+	 * @return 0 未确定，使用驱动默认值
+	 */
+	public int getFetchSize(String sql) {
+		return fetch(NamedSQL.get(sql));
+	}
+
+	private static final class Rows {
+		final int[] samples = new int[SAMPLES];
+		// 下一个样本位置，样本循环覆盖，计数不会溢出
+		int next;
+		// 样本是否已写满
+		boolean filled;
+		// 距上次计算收集的样本数量
+		int interval;
+		volatile int fetch;
+	}
+}
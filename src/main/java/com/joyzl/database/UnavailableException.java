@@ -0,0 +1,36 @@
+/*
+ * Copyright © 2017-2025 重庆骄智科技有限公司.
+ * 本软件根据 Apache License 2.0 开源，详见 LICENSE 文件。
+ */
+package com.joyzl.database;
+
+/**
+ * 数据库不可用，熔断器打开时获取连接快速失败抛出此异常
+ */
+public final class UnavailableException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final String url;
+	private final Breaker.State state;
+
+	UnavailableException(String url, Breaker.State state) {
+		super("数据库不可用:" + url + " " + state);
+		this.url = url;
+		this.state = state;
+	}
+
+	/**
+	 * 获取不可用的数据库连接字符串，其中的密码已隐藏
+	 */
+	public String getURL() {
+		return url;
+	}
+
+	/**
+	 * 获取抛出异常时的熔断器状态
+	 */
+	public Breaker.State getState() {
+		return state;
+	}
+}
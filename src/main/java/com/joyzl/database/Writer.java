@@ -0,0 +1,285 @@
+/*
+ * Copyright © 2017-2025 重庆骄智科技有限公司.
+ * 本软件根据 Apache License 2.0 开源，详见 LICENSE 文件。
+ */
+package com.joyzl.database;
+
+import java.io.Closeable;
+import java.sql.SQLException;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 合并写入，将多个线程提交的单条记录写入合并为批处理
+ * <p>
+ * 任意线程提交的记录进入无锁队列，后台线程在达到批量数量或等待时间后取出记录，
+ * 以 {@link Statement#batch()} 批处理执行并在一个事务中提交(组提交)，每条记录获得各自的 CompletableFuture。
+ * 批处理在提交前遇到数据库方言判定为可重试的错误(死锁、锁等待超时、序列化失败)时回滚并重试一次，参考 {@link Dialect#retryable(SQLException)}；
+ * 提交时的错误和连接中断不重试(提交可能已生效)，由记录的 CompletableFuture 返回给调用者；
+ * 队列有容量限制，队列满时提交线程将等待；{@link #close()} 或 {@link Database#destory()} 时队列中的记录将全部写入。
+ * </p>
+ *
+ * <pre>
+ * <code>
+ * Writer writer = Database.writer("INSERT INTO `events` (`type`,`content`) VALUES (?type,?content)");
+ * writer.write(statement -&gt; {
+ *     statement.setValue("type", 1);
+ *     statement.setValue("content", "...");
+ * });
+ * // 或以对象属性设置参数
+ * writer.write(event);
+ * </code>
+ * </pre>
+ */
+public final class Writer implements Closeable {
+
+	private final String sql;
+	private final int maximum;
+	private final long linger;
+
+	private final Queue<Item> queue = new ConcurrentLinkedQueue<>();
+	// 已提交未完成的记录数量
+	private final AtomicInteger count = new AtomicInteger();
+	private final AtomicBoolean running = new AtomicBoolean();
+	// 已安排等待合并的写入任务，写入任务开始时清除
+	private final AtomicBoolean pending = new AtomicBoolean();
+	// 已提交立即执行的写入任务，写入任务开始时清除
+	private final AtomicBoolean full = new AtomicBoolean();
+	private final Semaphore capacity;
+	private volatile boolean closed;
+
+	/**
+	 * @param sql 命名参数SQL语句
+	 * @param maximum 单次批处理的最大记录数量
+	 * @param linger 等待合并的最长时间(毫秒)
+	 * @param capacity 队列容量
+	 */
+	Writer(String sql, int maximum, long linger, int capacity) {
+		if (maximum < 1) {
+			throw new IllegalArgumentException("批处理数量必须大于0:" + maximum);
+		}
+		if (capacity < maximum) {
+			throw new IllegalArgumentException("队列容量不能小于批处理数量:" + capacity);
+		}
+		this.sql = sql;
+		this.maximum = maximum;
+		this.linger = linger;
+		this.capacity = new Semaphore(capacity);
+	}
+
+	/**
+	 * 提交一条记录，通过 setValue 设置参数<br>
+	 * binder 在后台线程执行，应仅设置参数值
+	 *
+	 * @param binder 参数设置
+	 * @return {@code CompletableFuture<Integer>} 完成时为此记录影响的行数
+	 */
+	public final CompletableFuture<Integer> write(Consumer<Statement> binder) {
+		try {
+			capacity.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+
+		// 先计数再检查关闭，确保关闭时能等待到此记录
+		final int size = count.incrementAndGet();
+		if (closed) {
+			count.decrementAndGet();
+			capacity.release();
+			throw new IllegalStateException("Writer 已关闭");
+		}
+
+		final Item item = new Item(binder);
+		queue.offer(item);
+		// 记录入队之后再检查任务标志，标志已清除的写入任务必然在此之后取出队列
+		if (size >= maximum) {
+			if (full.compareAndSet(false, true)) {
+				Database.executor().execute(this::flush);
+			}
+		} else if (pending.compareAndSet(false, true)) {
+			Database.scheduler().schedule(() -> Database.executor().execute(this::flush), linger, TimeUnit.MILLISECONDS);
+		}
+		return item;
+	}
+
+	/**
+	 * 提交一条记录，以对象属性设置参数，参考 {@link Statement#setValues(Object)}
+	 *
+	 * @param entity 实体对象
+	 * @return {@code CompletableFuture<Integer>} 完成时为此记录影响的行数
+	 */
+	public final CompletableFuture<Integer> write(Object entity) {
+		return write(statement -> statement.setValues(entity));
+	}
+
+	/**
+	 * 获取队列中等待写入的记录数量
+	 */
+	public final int size() {
+		return count.get();
+	}
+
+	/**
+	 * 停止接受新记录，将队列中的记录全部写入后返回
+	 */
+	@Override
+	public final void close() {
+		closed = true;
+		while (count.get() > 0) {
+			if (running.compareAndSet(false, true)) {
+				try {
+					while (drain()) {
+						// 继续
+					}
+				} finally {
+					running.set(false);
+				}
+			} else {
+				try {
+					Thread.sleep(1);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+			}
+		}
+		Database.WRITERS.remove(this);
+	}
+
+	/**
+	 * 后台写入，同一时间只有一个线程执行
+	 */
+	private void flush() {
+		// 先清除标志再取出队列，此后入队的记录将安排新的写入任务
+		full.set(false);
+		pending.set(false);
+		while (running.compareAndSet(false, true)) {
+			try {
+				while (drain()) {
+					// 继续
+				}
+			} finally {
+				running.set(false);
+			}
+			// 释放执行标志之后到达的记录由此处继续写入
+			if (queue.isEmpty()) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * 取出最多 maximum 条记录执行批处理
+	 *
+	 * @return 是否取出了记录
+	 */
+	private boolean drain() {
+		final Item[] items = new Item[maximum];
+		int size = 0;
+		Item item;
+		while (size < maximum && (item = queue.poll()) != null) {
+			items[size++] = item;
+		}
+		if (size == 0) {
+			return false;
+		}
+
+		int[] results = null;
+		try {
+			results = execute(items, size, true);
+		} catch (Exception e) {
+			for (int index = 0; index < size; index++) {
+				if (items[index] != null) {
+					items[index].completeExceptionally(e);
+				}
+			}
+			results = null;
+		} finally {
+			count.addAndGet(-size);
+			capacity.release(size);
+		}
+
+		// 事务提交后再完成请求
+		if (results != null) {
+			for (int index = 0, b = 0; index < size; index++) {
+				if (items[index] != null) {
+					items[index].complete(results[b++]);
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 在一个事务中以批处理执行记录，参数错误的记录被移除
+	 *
+	 * @param retry 提交前遇到可重试的错误时是否重试
+	 * @return 每条记录影响的行数，按未移除的记录顺序
+	 */
+	private int[] execute(Item[] items, int size, boolean retry) {
+		int batchs = 0;
+		boolean retrying = false;
+		try (Statement statement = Database.instance(sql, true)) {
+			for (int index = 0; index < size; index++) {
+				if (items[index] == null) {
+					continue;
+				}
+				try {
+					items[index].binder.accept(statement);
+					statement.batch();
+					batchs++;
+				} catch (Exception e) {
+					// 单条记录参数错误不影响其它记录
+					items[index].completeExceptionally(e);
+					items[index] = null;
+				}
+			}
+			if (batchs == 0) {
+				return null;
+			}
+			try {
+				statement.execute();
+			} catch (RuntimeException e) {
+				// 执行失败时 Statement 已回滚事务，提交在 close() 中
+				if (!retry || !retryable(e)) {
+					throw e;
+				}
+				retrying = true;
+			}
+			if (!retrying) {
+				return statement.getUpdatedBatchs();
+			}
+		}
+		// 死锁等错误在提交前发生，事务已回滚，重试一次
+		return execute(items, size, false);
+	}
+
+	/**
+	 * 检查异常原因是否为数据库方言判定的可重试错误
+	 */
+	private static boolean retryable(Throwable e) {
+		final Pool pool = Database.POOL;
+		while (e != null) {
+			if (e instanceof SQLException) {
+				return pool != null && pool.dialect.retryable((SQLException) e);
+			}
+			e = e.getCause();
+		}
+		return false;
+	}
+
+	private static final class Item extends CompletableFuture<Integer> {
+		final Consumer<Statement> binder;
+
+		Item(Consumer<Statement> binder) {
+			this.binder = binder;
+		}
+	}
+}
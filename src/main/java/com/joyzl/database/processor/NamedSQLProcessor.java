@@ -0,0 +1,377 @@
+/*
+ * Copyright © 2017-2025 重庆骄智科技有限公司.
+ * 本软件根据 Apache License 2.0 开源，详见 LICENSE 文件。
+ */
+package com.joyzl.database.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.MirroredTypeException;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+
+import com.joyzl.database.NamedSQL;
+import com.joyzl.database.SQL;
+
+/**
+ * 注解处理器，在编译期分析 {@link SQL} 标记的命名参数SQL常量并生成 XxxSQL 类
+ * <p>
+ * 生成的类包含：注册到 {@link NamedSQL} 缓存的预编译实例，以预编译实例获取 Statement 的方法，
+ * 以及指定参数对象类型时直接调用 getter 的参数绑定方法(无反射)。
+ * 生成的源文件只包含 ASCII 字符，非 ASCII 字符以 Unicode 转义表示，不受编译器源文件编码影响。
+ * </p>
+ * 在 Maven 中通过 maven-compiler-plugin 的 annotationProcessorPaths 指定 com.joyzl:database 即可启用。
+ */
+@SupportedAnnotationTypes("com.joyzl.database.SQL")
+public final class NamedSQLProcessor extends AbstractProcessor {
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+		final Map<TypeElement, List<VariableElement>> classes = new LinkedHashMap<>();
+		for (Element element : round.getElementsAnnotatedWith(SQL.class)) {
+			if (element.getKind() != ElementKind.FIELD) {
+				continue;
+			}
+			final VariableElement field = (VariableElement) element;
+			if (!field.getModifiers().contains(Modifier.STATIC) || !field.getModifiers().contains(Modifier.FINAL) || !(field.getConstantValue() instanceof String)) {
+				error(field, "@SQL 只能标记 static final String 常量");
+				continue;
+			}
+			classes.computeIfAbsent((TypeElement) field.getEnclosingElement(), k -> new ArrayList<>()).add(field);
+		}
+		for (Map.Entry<TypeElement, List<VariableElement>> entry : classes.entrySet()) {
+			generate(entry.getKey(), entry.getValue());
+		}
+		return true;
+	}
+
+	private void generate(TypeElement clazz, List<VariableElement> fields) {
+		final PackageElement pack = processingEnv.getElementUtils().getPackageOf(clazz);
+		final String name = clazz.getQualifiedName().toString().substring(pack.isUnnamed() ? 0 : pack.getQualifiedName().length() + 1).replace('.', '_') + "SQL";
+
+		final StringBuilder code = new StringBuilder();
+		if (!pack.isUnnamed()) {
+			code.append("package ").append(pack.getQualifiedName()).append(";\n\n");
+		}
+		code.append("/**\n");
+		code.append(" * ").append(clazz.getSimpleName()).append(" 的预编译命名参数SQL，由 NamedSQLProcessor 生成，请勿修改\n");
+		code.append(" */\n");
+		code.append("public final class ").append(name).append(" {\n");
+
+		boolean valid = true;
+		final Map<String, VariableElement> methods = new HashMap<>();
+		for (VariableElement field : fields) {
+			// 不同常量名转换后的方法名可能相同，例如 UPDATE_NAME 与 UPDATE__NAME
+			final VariableElement other = methods.putIfAbsent(camel(field.getSimpleName().toString()), field);
+			if (other != null) {
+				error(field, "@SQL 常量 " + field.getSimpleName() + " 与 " + other.getSimpleName() + " 生成的方法名相同");
+				valid = false;
+				continue;
+			}
+			valid &= field(code, field);
+		}
+		code.append("\n\tprivate ").append(name).append("() {\n\t}\n}\n");
+		if (!valid) {
+			return;
+		}
+
+		final String qualified = pack.isUnnamed() ? name : pack.getQualifiedName() + "." + name;
+		try (Writer writer = processingEnv.getFiler().createSourceFile(qualified, clazz).openWriter()) {
+			writer.write(ascii(code));
+		} catch (IOException e) {
+			error(clazz, "无法生成 " + qualified + ":" + e.getMessage());
+		}
+	}
+
+	private boolean field(StringBuilder code, VariableElement field) {
+		final String sql = (String) field.getConstantValue();
+		final NamedSQL named;
+		try {
+			named = NamedSQL.get(sql);
+		} catch (IllegalArgumentException e) {
+			error(field, e.getMessage());
+			return false;
+		}
+
+		final String[] names = named.getNames();
+		final Integer[] types = named.getTypes();
+		final Set<String> parameters = new LinkedHashSet<>();
+		for (int index = 0; index < names.length; index++) {
+			if (names[index].isEmpty()) {
+				error(field, "第 " + (index + 1) + " 个参数没有参数名");
+				return false;
+			}
+			if (index < types.length && types[index] != null && types[index] == Types.OTHER) {
+				warning(field, "参数 ?" + names[index] + " 的类型未识别，将注册为 OTHER");
+			}
+			parameters.add(names[index]);
+		}
+
+		final String constant = field.getSimpleName().toString();
+		code.append("\n\t/** ").append(escape(sql)).append(" */\n");
+		code.append("\tpublic final static com.joyzl.database.NamedSQL ").append(constant).append(" = com.joyzl.database.NamedSQL.precompiled(");
+		code.append(literal(sql)).append(", ");
+		code.append(literal(named.getExcuteSQL())).append(", ");
+		code.append(literal(named.getSQLCommand())).append(", ");
+		code.append("new String[] {");
+		for (int index = 0; index < names.length; index++) {
+			code.append(index > 0 ? ", " : " ").append(literal(names[index]));
+		}
+		code.append(names.length > 0 ? " }, " : "}, ");
+		code.append("new Integer[] {");
+		for (int index = 0; index < types.length; index++) {
+			code.append(index > 0 ? ", " : " ").append(types[index]);
+		}
+		code.append(types.length > 0 ? " }, " : "}, ");
+		code.append("new int[] {");
+		final int[] positions = named.getPositions();
+		for (int index = 0; index < positions.length; index++) {
+			code.append(index > 0 ? ", " : " ").append(positions[index]);
+		}
+		code.append(positions.length > 0 ? " });\n" : "});\n");
+
+		code.append("\t/** 以预编译的 ").append(constant).append(" 实例化数据访问对象 */\n");
+		code.append("\tpublic static com.joyzl.database.Statement instance").append(camel(constant)).append("() {\n");
+		code.append("\t\treturn com.joyzl.database.Database.instance(").append(constant).append(");\n");
+		code.append("\t}\n");
+
+		final TypeMirror type = type(field);
+		if (type == null) {
+			return true;
+		}
+		return binder(code, field, constant, named, parameters, type);
+	}
+
+	/**
+	 * 生成参数绑定方法，每个输入参数必须有对应的属性
+	 */
+	private boolean binder(StringBuilder code, VariableElement field, String constant, NamedSQL named, Set<String> parameters, TypeMirror type) {
+		final TypeElement entity = (TypeElement) processingEnv.getTypeUtils().asElement(type);
+		final Map<String, ExecutableElement> getters = getters(entity);
+		final String[] names = named.getNames();
+		final Integer[] types = named.getTypes();
+
+		final Set<String> outs = new LinkedHashSet<>();
+		for (int index = 0; index < types.length; index++) {
+			if (types[index] != null) {
+				outs.add(names[index]);
+			}
+		}
+
+		// 集合参数展开时重新分析SQL，必须先于其它参数设置
+		final StringBuilder collections = new StringBuilder();
+		final StringBuilder body = new StringBuilder();
+		boolean valid = true;
+		for (String parameter : parameters) {
+			final ExecutableElement getter = getters.get(normalize(parameter));
+			if (getter == null) {
+				if (!outs.contains(parameter)) {
+					error(field, "参数 ?" + parameter + " 在 " + entity.getQualifiedName() + " 中没有对应的属性");
+					valid = false;
+				}
+				continue;
+			}
+			if (!supported(getter.getReturnType())) {
+				error(field, "参数 ?" + parameter + " 的类型 " + getter.getReturnType() + " 不能通过 Statement.setValue 设置");
+				valid = false;
+				continue;
+			}
+			(collection(getter.getReturnType()) ? collections : body).append("\t\tstatement.setValue(").append(literal(parameter)).append(", entity.").append(getter.getSimpleName()).append("());\n");
+		}
+		if (!valid) {
+			return false;
+		}
+
+		code.append("\t/** 以 ").append(entity.getSimpleName()).append(" 的属性设置 ").append(constant).append(" 的参数 */\n");
+		code.append("\tpublic static void bind").append(camel(constant)).append("(com.joyzl.database.Statement statement, ").append(processingEnv.getTypeUtils().erasure(type)).append(" entity) {\n");
+		code.append(collections);
+		code.append(body);
+		code.append("\t}\n");
+		return true;
+	}
+
+	/**
+	 * 获取属性读取方法，记录类型为访问器，其它类型为 getXxx/isXxx
+	 */
+	private Map<String, ExecutableElement> getters(TypeElement entity) {
+		final Map<String, ExecutableElement> getters = new HashMap<>();
+		if (entity.getKind() == ElementKind.RECORD) {
+			for (Element element : entity.getRecordComponents()) {
+				final ExecutableElement accessor = ((javax.lang.model.element.RecordComponentElement) element).getAccessor();
+				getters.put(normalize(element.getSimpleName().toString()), accessor);
+			}
+			return getters;
+		}
+		for (Element element : processingEnv.getElementUtils().getAllMembers(entity)) {
+			if (element.getKind() != ElementKind.METHOD || !element.getModifiers().contains(Modifier.PUBLIC) || element.getModifiers().contains(Modifier.STATIC)) {
+				continue;
+			}
+			final ExecutableElement method = (ExecutableElement) element;
+			if (!method.getParameters().isEmpty() || method.getReturnType().getKind() == TypeKind.VOID) {
+				continue;
+			}
+			final String name = method.getSimpleName().toString();
+			if (name.startsWith("get") && name.length() > 3 && !name.equals("getClass")) {
+				getters.put(normalize(name.substring(3)), method);
+			} else if (name.startsWith("is") && name.length() > 2 && method.getReturnType().getKind() == TypeKind.BOOLEAN) {
+				getters.put(normalize(name.substring(2)), method);
+			}
+		}
+		return getters;
+	}
+
+	/**
+	 * 检查是否有对应的 Statement.setValue 方法
+	 */
+	private boolean supported(TypeMirror type) {
+		if (type.getKind().isPrimitive()) {
+			return type.getKind() != TypeKind.CHAR;
+		}
+		if (type.getKind() == TypeKind.ARRAY) {
+			final TypeMirror component = ((javax.lang.model.type.ArrayType) type).getComponentType();
+			return component.getKind() == TypeKind.BYTE || component.getKind() == TypeKind.INT || component.getKind() == TypeKind.LONG;
+		}
+		if (type.getKind() != TypeKind.DECLARED) {
+			return false;
+		}
+		final String name = ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().toString();
+		switch (name) {
+			case "java.lang.Boolean":
+			case "java.lang.Byte":
+			case "java.lang.Short":
+			case "java.lang.Integer":
+			case "java.lang.Long":
+			case "java.lang.Float":
+			case "java.lang.Double":
+			case "java.lang.String":
+			case "java.math.BigDecimal":
+			case "java.time.LocalDate":
+			case "java.time.LocalTime":
+			case "java.time.LocalDateTime":
+				return true;
+			default:
+				return assignable(type, "java.util.Date") || assignable(type, "java.util.Collection");
+		}
+	}
+
+	/**
+	 * 检查是否展开为 IN 列表的集合参数
+	 */
+	private boolean collection(TypeMirror type) {
+		if (type.getKind() == TypeKind.ARRAY) {
+			final TypeMirror component = ((javax.lang.model.type.ArrayType) type).getComponentType();
+			return component.getKind() == TypeKind.INT || component.getKind() == TypeKind.LONG;
+		}
+		return type.getKind() == TypeKind.DECLARED && assignable(type, "java.util.Collection");
+	}
+
+	private boolean assignable(TypeMirror type, String name) {
+		final TypeElement element = processingEnv.getElementUtils().getTypeElement(name);
+		return processingEnv.getTypeUtils().isAssignable(processingEnv.getTypeUtils().erasure(type), processingEnv.getTypeUtils().erasure(element.asType()));
+	}
+
+	/**
+	 * 获取注解指定的参数对象类型，未指定时返回 null
+	 */
+	private static TypeMirror type(VariableElement field) {
+		try {
+			field.getAnnotation(SQL.class).value();
+		} catch (MirroredTypeException e) {
+			final TypeMirror type = e.getTypeMirror();
+			if (type.getKind() == TypeKind.DECLARED && !((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().contentEquals("java.lang.Void")) {
+				return type;
+			}
+		}
+		return null;
+	}
+
+	private String literal(String value) {
+		return processingEnv.getElementUtils().getConstantExpression(value);
+	}
+
+	/**
+	 * 文档注释中的SQL不能结束注释
+	 */
+	private static String escape(String sql) {
+		return sql.replace("*/", "*&#47;").replace("\\", "&#92;").replace('\r', ' ').replace('\n', ' ');
+	}
+
+	/**
+	 * 非 ASCII 字符转换为 Unicode 转义
+	 */
+	private static String ascii(CharSequence code) {
+		final StringBuilder builder = new StringBuilder(code.length());
+		for (int index = 0; index < code.length(); index++) {
+			final char c = code.charAt(index);
+			if (c < 128) {
+				builder.append(c);
+			} else {
+				builder.append(String.format("\\u%04x", (int) c));
+			}
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * UPDATE_NAME -> UpdateName
+	 */
+	private static String camel(String constant) {
+		final StringBuilder builder = new StringBuilder();
+		boolean upper = true;
+		for (int index = 0; index < constant.length(); index++) {
+			final char c = constant.charAt(index);
+			if (c == '_') {
+				upper = true;
+			} else if (upper) {
+				builder.append(Character.toUpperCase(c));
+				upper = false;
+			} else {
+				builder.append(Character.toLowerCase(c));
+			}
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * 参数名与属性名忽略大小写和下划线匹配，与运行时对象绑定一致
+	 */
+	private static String normalize(String name) {
+		return name.replace("_", "").toLowerCase(Locale.ROOT);
+	}
+
+	private void error(Element element, String message) {
+		processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+	}
+
+	private void warning(Element element, String message) {
+		processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, message, element);
+	}
+}
@@ -3,7 +3,13 @@
  * 本软件根据 Apache License 2.0 开源，详见 LICENSE 文件。
  */
 module com.joyzl.database {
-	requires java.sql;
+	requires transitive java.sql;
+	requires static java.compiler;
 
 	exports com.joyzl.database;
-}
\ No newline at end of file
+
+	uses com.joyzl.database.Dialect;
+
+	provides com.joyzl.database.Dialect with com.joyzl.database.MySQLDialect, com.joyzl.database.OracleDialect, com.joyzl.database.H2Dialect;
+	provides javax.annotation.processing.Processor with com.joyzl.database.processor.NamedSQLProcessor;
+}
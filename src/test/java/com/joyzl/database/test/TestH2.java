@@ -0,0 +1,445 @@
+/*
+ * Copyright © 2017-2025 重庆骄智科技有限公司.
+ * 本软件根据 Apache License 2.0 开源，详见 LICENSE 文件。
+ */
+package com.joyzl.database.test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+import com.joyzl.database.Database;
+import com.joyzl.database.Dialect;
+import com.joyzl.database.H2Dialect;
+import com.joyzl.database.Interceptor;
+import com.joyzl.database.Loader;
+import com.joyzl.database.MySQLDialect;
+import com.joyzl.database.NamedSQL;
+import com.joyzl.database.OracleDialect;
+import com.joyzl.database.SQL;
+import com.joyzl.database.Sharding;
+import com.joyzl.database.Statement;
+import com.joyzl.database.Table;
+import com.joyzl.database.Tuner;
+import com.joyzl.database.UnavailableException;
+
+/**
+ * H2 进程内数据库测试，无须数据库服务器，必须全部执行
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class TestH2 {
+
+	record UserQuery(boolean enable, List<Long> ids) {
+	}
+
+	// 集合参数在其它参数之后，生成的绑定方法应先设置集合参数
+	@SQL(UserQuery.class)
+	final static String SELECT_USERS = "SELECT * FROM `users` WHERE `enable`=?enable AND `id` IN (?ids) AND `name`<>'无名'";
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception {
+		Database.initialize("jdbc:h2:mem:joyzl-database-test;DB_CLOSE_DELAY=-1;MODE=MySQL", "sa", "", 4);
+		try (Statement statement = Database.instance("CREATE TABLE `users` (`id` BIGINT NOT NULL,`name` VARCHAR(32) DEFAULT NULL,`enable` BOOLEAN NOT NULL DEFAULT TRUE,PRIMARY KEY (`id`))")) {
+			statement.execute();
+		}
+		try (Statement statement = Database.instance("INSERT INTO `users` (`id`,`name`)VALUES(?id,?name)")) {
+			for (int index = 1; index <= 10; index++) {
+				statement.setValue("id", index);
+				statement.setValue("name", "姓名" + index);
+				statement.batch();
+			}
+			statement.execute();
+		}
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception {
+		Database.destory();
+	}
+
+	@Test
+	@Order(1)
+	void testDialect() {
+		// 根据连接字符串选择方言
+		assertInstanceOf(H2Dialect.class, Database.getDialect());
+
+		final List<String> names = new ArrayList<>();
+		for (Dialect dialect : ServiceLoader.load(Dialect.class)) {
+			names.add(dialect.name());
+		}
+		assertTrue(names.containsAll(List.of("mysql", "oracle", "h2")));
+
+		// 已指定的连接参数保持不变
+		final MySQLDialect mysql = new MySQLDialect();
+		String url = mysql.url("jdbc:mysql://127.0.0.1:3306/test");
+		assertTrue(url.startsWith("jdbc:mysql://127.0.0.1:3306/test?cachePrepStmts=true&"));
+		assertTrue(!url.contains("useLocalSessionState"));
+		url = mysql.url("jdbc:mysql://127.0.0.1:3306/test?CachePrepStmts=false&xprepStmtCacheSize=1");
+		assertTrue(url.contains("CachePrepStmts=false"));
+		assertTrue(!url.contains("cachePrepStmts=true"));
+		assertTrue(url.contains("&prepStmtCacheSize=256"));
+
+		// 仅死锁、锁等待超时和序列化失败可重试，连接中断不可重试
+		assertTrue(mysql.retryable(new SQLException("deadlock", "40001", 1213)));
+		assertTrue(mysql.retryable(new SQLException("lock wait timeout", "HY000", 1205)));
+		assertFalse(mysql.retryable(new SQLException("lost connection", "HY000", 2013)));
+		assertFalse(mysql.retryable(new SQLException("communications link failure", "08S01", 0)));
+		assertFalse(new OracleDialect().retryable(new SQLException("end-of-file on communication channel", "08006", 3113)));
+	}
+
+	@Test
+	@Order(2)
+	void testOraclePrepare() throws Exception {
+		// 记录 prepareStatement 的参数数量，2个参数表示请求生成的主键
+		final List<Integer> arguments = new ArrayList<>();
+		final Connection connection = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+			arguments.add(args.length);
+			return null;
+		});
+		final OracleDialect oracle = new OracleDialect();
+		oracle.prepare(connection, "/* trace */ INSERT INTO users (id) VALUES (?)", "INSERT");
+		oracle.prepare(connection, "  insert INTO users (id) VALUES (?)", "insert");
+		oracle.prepare(connection, "UPDATE users SET name=? WHERE id=?", "UPDATE");
+		assertEquals(List.of(2, 2, 1), arguments);
+	}
+
+	@Test
+	@Order(3)
+	void testExplain() {
+		try (Statement statement = Database.explain("SELECT * FROM `users` WHERE `id`=?id")) {
+			statement.setValue("id", 1);
+			assertTrue(statement.execute());
+			assertTrue(statement.nextRecord());
+		}
+	}
+
+	@Test
+	@Order(4)
+	void testPrecompiled() {
+		try (Statement statement = TestH2SQL.instanceSelectUsers()) {
+			assertSame(TestH2SQL.SELECT_USERS, statement.getNamedSQL());
+			TestH2SQL.bindSelectUsers(statement, new UserQuery(true, List.of(1L, 2L, 3L)));
+			assertTrue(statement.execute());
+			int size = 0;
+			while (statement.nextRecord()) {
+				size++;
+			}
+			assertEquals(3, size);
+		}
+	}
+
+	@Test
+	@Order(5)
+	void testClosed() {
+		final Statement closed = Database.instance("SELECT * FROM `users` WHERE `id`=?id");
+		closed.setValue("id", 1);
+		assertTrue(closed.execute());
+		assertTrue(closed.nextRecord());
+		closed.close();
+		// 重复关闭
+		closed.close();
+
+		// 关闭后使用
+		assertThrows(IllegalStateException.class, () -> closed.getValue("name", ""));
+		assertThrows(IllegalStateException.class, () -> closed.nextRecord());
+		assertThrows(IllegalStateException.class, () -> closed.setValue("id", 2));
+		assertThrows(IllegalStateException.class, () -> closed.execute());
+
+		// 关闭的实例不会被重用，持有的引用不影响新的实例
+		try (Statement statement = Database.instance("SELECT * FROM `users` WHERE `id`=?id")) {
+			assertNotSame(closed, statement);
+			statement.setValue("id", 2);
+			closed.close();
+			assertThrows(IllegalStateException.class, () -> closed.setValue("id", 3));
+			assertTrue(statement.execute());
+			assertTrue(statement.nextRecord());
+			assertEquals("姓名2", statement.getValue("name", ""));
+		}
+
+		// 有拦截器时参数缓冲区在关闭后被当前线程重用，关闭的引用不能修改新实例的参数
+		final List<Object[]> arrays = new ArrayList<>();
+		final List<Object> values = new ArrayList<>();
+		final Interceptor interceptor = new Interceptor() {
+			@Override
+			public void beforeExecute(NamedSQL sql, Object[] parameters) {
+				arrays.add(parameters);
+				values.add(parameters[0]);
+			}
+		};
+		Database.addInterceptor(interceptor);
+		try {
+			final Statement stale = Database.instance("SELECT * FROM `users` WHERE `id`=?id");
+			stale.setValue("id", 1);
+			assertTrue(stale.execute());
+			stale.close();
+			try (Statement statement = Database.instance("SELECT * FROM `users` WHERE `id`=?id")) {
+				statement.setValue("id", 2);
+				assertThrows(IllegalStateException.class, () -> stale.setValue("id", 3));
+				assertThrows(IllegalStateException.class, () -> stale.execute());
+				stale.close();
+				assertTrue(statement.execute());
+			}
+			assertEquals(2, arrays.size());
+			assertSame(arrays.get(0), arrays.get(1));
+			assertEquals(List.of(1, 2), values);
+		} finally {
+			Database.removeInterceptor(interceptor);
+		}
+	}
+
+	@Test
+	@Order(6)
+	void testTuner() throws Exception {
+		final Tuner tuner = Database.tuner(1);
+		assertEquals(4, Database.getPool().getLimit());
+
+		// 每16个样本按第90百分位数计算 fetch size：读取 1~10 条各一次，10条再六次
+		final String sql = "SELECT * FROM `users` WHERE `id`<=?id";
+		for (int index = 1; index <= 16; index++) {
+			try (Statement statement = Database.instance(sql)) {
+				statement.setValue("id", Math.min(index, 10));
+				statement.execute();
+				while (statement.nextRecord()) {
+				}
+			}
+		}
+		assertEquals(11, tuner.getFetchSize(sql));
+		Tuner.Decision decision = tuner.getDecisions().get(0);
+		assertEquals("fetch", decision.name());
+		assertEquals(0, decision.from());
+		assertEquals(11, decision.to());
+
+		// 没有负载时乘法减少空闲连接上限
+		decision = await(tuner, 1);
+		assertEquals("idle", decision.name());
+		assertEquals(4, decision.from());
+		assertEquals(3, decision.to());
+
+		// 连接不足时加法增加空闲连接上限
+		int index = tuner.getDecisions().size();
+		final List<Statement> statements = new ArrayList<>();
+		try {
+			while (statements.size() < 4) {
+				statements.add(Database.instance(sql));
+			}
+		} finally {
+			for (Statement statement : statements) {
+				statement.close();
+			}
+		}
+		do {
+			decision = await(tuner, index++);
+		} while (decision.to() < decision.from());
+		assertEquals("idle", decision.name());
+		assertEquals(decision.from() + 1, decision.to());
+	}
+
+	@Test
+	@Order(7)
+	void testMaterialize() {
+		try (Statement statement = Database.instance("CREATE TABLE `files` (`id` BIGINT NOT NULL,`data` BLOB,`tags` VARCHAR(16) ARRAY,`flag` VARCHAR(8),PRIMARY KEY (`id`))")) {
+			statement.execute();
+		}
+		try (Statement statement = Database.instance("INSERT INTO `files` (`id`,`data`,`tags`,`flag`)VALUES(1,X'0102FF',ARRAY['a','b'],'true'),(2,NULL,NULL,'0'),(3,X'',ARRAY[],'abc')")) {
+			statement.execute();
+		}
+
+		final Table table;
+		try (Statement statement = Database.instance("SELECT * FROM `files` ORDER BY `id`")) {
+			statement.execute();
+			table = statement.materialize();
+		}
+
+		// BLOB 和 ARRAY 在创建时读取，关闭连接后可用
+		final Table.Cursor cursor = table.cursor();
+		assertTrue(cursor.nextRecord());
+		assertArrayEquals(new byte[] { 1, 2, -1 }, cursor.getValue("data", (byte[]) null));
+		assertArrayEquals(new Object[] { "a", "b" }, cursor.getValue("tags", (Object[]) null));
+		assertTrue(cursor.getValue("flag", false));
+		assertThrows(IllegalStateException.class, () -> cursor.getValue("tags", 0L));
+		// byte[] 和数组不能转换为字符串时返回替代值
+		assertEquals("?", cursor.getValue("data", "?"));
+		assertEquals("?", cursor.getValue("tags", "?"));
+		assertEquals("true", cursor.getValue("flag", "?"));
+		assertTrue(cursor.nextRecord());
+		assertNull(cursor.getValue("data", (byte[]) null));
+		assertNull(cursor.getValue("tags", (Object[]) null));
+		assertFalse(cursor.getValue("flag", true));
+		assertTrue(cursor.nextRecord());
+		assertArrayEquals(new byte[0], cursor.getValue("data", (byte[]) null));
+		assertArrayEquals(new Object[0], cursor.getValue("tags", (Object[]) null));
+		// 不能转换时返回替代值
+		assertTrue(cursor.getValue("flag", true));
+		assertEquals(Boolean.FALSE, cursor.getValue("flag", Boolean.FALSE));
+		assertFalse(cursor.nextRecord());
+	}
+
+	record Big(BigDecimal id, String name) {
+	}
+
+	@Test
+	@Order(8)
+	void testLoader() throws Exception {
+		try (Statement statement = Database.instance("CREATE TABLE `bigs` (`id` DECIMAL(30,0) NOT NULL,`name` VARCHAR(8),PRIMARY KEY (`id`))")) {
+			statement.execute();
+		}
+		try (Statement statement = Database.instance("INSERT INTO `bigs` (`id`,`name`)VALUES(1,'小'),(18446744073709551617,'大')")) {
+			statement.execute();
+		}
+
+		// 2^64+1 截断为 long 时与 1 相同
+		final BigInteger big = BigInteger.ONE.shiftLeft(64).add(BigInteger.ONE);
+		final Loader<Big> loader = Database.loader("SELECT * FROM `bigs` WHERE `id` IN (?ids)", "ids", "id", Big.class);
+		final CompletableFuture<Big> small = loader.load(1L);
+		final CompletableFuture<Big> large = loader.load(big);
+		assertNotSame(small, large);
+		assertEquals("小", small.get(5, TimeUnit.SECONDS).name());
+		assertEquals("大", large.get(5, TimeUnit.SECONDS).name());
+	}
+
+	@Test
+	@Order(9)
+	void testUnavailable() {
+		final Sharding sharding = Database.sharding(Database.MYSQL, "id", Sharding.hash(), new String[] { "jdbc:h2:tcp://127.0.0.1:1/mem:down;PASSWORD=secret" }, "sa", "", 1);
+		sharding.getPools()[0].getBreaker().setThreshold(1, 60 * 1000, 60 * 1000);
+		try (Statement statement = sharding.instance("SELECT * FROM `users` WHERE `id`=?id")) {
+			assertThrows(RuntimeException.class, () -> statement.setValue("id", 1));
+		}
+		// 熔断器打开后快速失败，异常消息隐藏密码
+		try (Statement statement = sharding.instance("SELECT * FROM `users` WHERE `id`=?id")) {
+			final UnavailableException e = assertThrows(UnavailableException.class, () -> statement.setValue("id", 1));
+			assertTrue(e.getMessage().contains("PASSWORD=***"));
+			assertFalse(e.getMessage().contains("secret"));
+		}
+	}
+
+	@Test
+	@Order(10)
+	void testRelease() {
+		final long active = Database.getPool().getActive();
+		// 事务中的连接被数据库中断，关闭时丢弃连接并保持借出和归还计数一致
+		final Statement statement = Database.instance("SELECT SESSION_ID() AS `id`", true);
+		assertTrue(statement.execute());
+		assertTrue(statement.nextRecord());
+		final int session = statement.getValue("id", 0);
+		assertEquals(active + 1, Database.getPool().getActive());
+		try (Statement abort = Database.instance("SELECT ABORT_SESSION(?id) AS `aborted`")) {
+			abort.setValue("id", session);
+			assertTrue(abort.execute());
+			assertTrue(abort.nextRecord());
+			assertTrue(abort.getValue("aborted", false));
+		}
+		statement.close();
+		assertEquals(active, Database.getPool().getActive());
+	}
+
+	@Test
+	@Order(11)
+	void testInterceptor() {
+		final List<String> hooks = new ArrayList<>();
+		final Interceptor recorder = new Interceptor() {
+			@Override
+			public void afterAcquire(NamedSQL sql, long nanos, Throwable error) {
+				hooks.add("afterAcquire " + (error == null ? null : error.getMessage()));
+			}
+
+			@Override
+			public void afterExecute(NamedSQL sql, Object[] parameters, long nanos, Throwable error) {
+				hooks.add("afterExecute " + (error == null ? null : error.getCause().getClass().getSimpleName()));
+			}
+
+			@Override
+			public void afterClose(NamedSQL sql, long nanos, Throwable error) {
+				hooks.add("afterClose " + error);
+			}
+		};
+		// 后注册的拦截器 after 方法先调用，抛出的异常不影响先注册的拦截器和原有异常
+		final Interceptor failing = new Interceptor() {
+			@Override
+			public void afterExecute(NamedSQL sql, Object[] parameters, long nanos, Throwable error) {
+				throw new IllegalStateException("afterExecute");
+			}
+
+			@Override
+			public void beforeClose(NamedSQL sql) {
+				throw new IllegalStateException("beforeClose");
+			}
+
+			@Override
+			public void afterClose(NamedSQL sql, long nanos, Throwable error) {
+				throw new IllegalStateException("afterClose");
+			}
+		};
+		Database.addInterceptor(recorder);
+		Database.addInterceptor(failing);
+		try {
+			final long active = Database.getPool().getActive();
+			try (Statement statement = Database.instance("INSERT INTO `users` (`id`,`name`)VALUES(?id,?name)")) {
+				statement.setValue("id", 1);
+				statement.setValue("name", "重复");
+				final RuntimeException e = assertThrows(RuntimeException.class, () -> statement.execute());
+				assertInstanceOf(SQLException.class, e.getCause());
+			}
+			assertEquals(List.of("afterAcquire null", "afterExecute JdbcSQLIntegrityConstraintViolationException", "afterClose null"), hooks);
+			assertEquals(active, Database.getPool().getActive());
+
+			// before 方法中止获取连接时 after 方法获得异常
+			hooks.clear();
+			final Interceptor rejecting = new Interceptor() {
+				@Override
+				public void beforeAcquire(NamedSQL sql) {
+					throw new IllegalStateException("rejected");
+				}
+			};
+			Database.addInterceptor(rejecting);
+			try {
+				assertThrows(IllegalStateException.class, () -> Database.instance("SELECT * FROM `users`"));
+			} finally {
+				Database.removeInterceptor(rejecting);
+			}
+			assertEquals(List.of("afterAcquire rejected"), hooks);
+			assertEquals(active, Database.getPool().getActive());
+		} finally {
+			Database.removeInterceptor(failing);
+			Database.removeInterceptor(recorder);
+		}
+	}
+
+	/**
+	 * 等待第 index 条调节决策(从0开始)，连接池每秒调节一次
+	 */
+	private static Tuner.Decision await(Tuner tuner, int index) throws InterruptedException {
+		for (int times = 0; times < 50; times++) {
+			final List<Tuner.Decision> decisions = tuner.getDecisions();
+			if (decisions.size() > index) {
+				return decisions.get(index);
+			}
+			Thread.sleep(100);
+		}
+		throw new AssertionError("没有调节决策");
+	}
+}
@@ -5,9 +5,19 @@
 package com.joyzl.database.test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
@@ -17,8 +27,16 @@ import org.junit.jupiter.api.Order;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestMethodOrder;
 
+import com.joyzl.database.Breaker;
 import com.joyzl.database.Database;
+import com.joyzl.database.Interceptor;
+import com.joyzl.database.Loader;
+import com.joyzl.database.NamedSQL;
+import com.joyzl.database.Sharding;
 import com.joyzl.database.Statement;
+import com.joyzl.database.Table;
+import com.joyzl.database.UnavailableException;
+import com.joyzl.database.Writer;
 
 /**
  * MySQL数据库操作测试，必须全部执行，单个测试方法执行将缺失上下文
@@ -29,12 +47,14 @@ import com.joyzl.database.Statement;
 @TestMethodOrder(MethodOrderer.OrderAnnotation.class)
 class TestMySQL {
 
+	final static String HOST = "jdbc:mysql://192.168.8.2:3306/";
+	final static String PARAMETERS = "?characterEncoding=utf8&serverTimezone=GMT%2B8";
+	final static String USER = "root";
+	final static String PSWD = "JOYZL.mysql.2020";
+
 	@BeforeAll
 	static void setUpBeforeClass() throws Exception {
-		final String url = "jdbc:mysql://192.168.8.2:3306/?characterEncoding=utf8&serverTimezone=GMT%2B8";
-		final String user = "root";
-		final String pswd = "JOYZL.mysql.2020";
-		Database.initialize(Database.MYSQL, url, user, pswd, 1);
+		Database.initialize(Database.MYSQL, HOST + PARAMETERS, USER, PSWD, 1);
 		databaseCreate();
 	}
 
@@ -198,6 +218,34 @@ class TestMySQL {
 		}
 	}
 
+	@Test
+	@Order(12)
+	void testInsertEntity() {
+		final String SQL = "INSERT INTO `users` (`id`,`mobile`,`name`,`enable`)VALUES(?id,?mobile,?name,?enable)";
+		// 单个对象
+		try (Statement statement = Database.instance(SQL)) {
+			statement.setValues(new User(99, "0000000099", "姓名99", true, null));
+			if (statement.execute()) {
+				assertEquals(1, statement.getUpdatedCount());
+			} else {
+				fail("INSERT ENTITY FAIL");
+			}
+		}
+		// 对象集合
+		final List<User> users = new ArrayList<>();
+		for (int index = 0; index < 10; index++) {
+			users.add(new User(index + 100, "000000010" + index, "姓名" + index, true, null));
+		}
+		try (Statement statement = Database.instance(SQL)) {
+			statement.batchAll(users);
+			if (statement.execute()) {
+				assertEquals(10, statement.getUpdatedCount());
+			} else {
+				fail("INSERT ENTITY BATCH FAIL");
+			}
+		}
+	}
+
 	@Test
 	@Order(20)
 	void testSelect() {
@@ -258,6 +306,134 @@ class TestMySQL {
 		}
 	}
 
+	record User(long id, String mobile, String name, boolean enable, LocalDateTime created) {
+	}
+
+	@Test
+	@Order(21)
+	void testFetch() {
+		final String SQL = "SELECT * FROM `users` WHERE `enable`=?enable ORDER BY `id`";
+		try (Statement statement = Database.instance(SQL)) {
+			int size = 0;
+			statement.setValue("enable", true);
+			if (statement.execute()) {
+				final List<User> users = statement.fetch(User.class);
+				assertTrue(users.size() > 0);
+				size = users.size();
+				for (User user : users) {
+					assertTrue(user.id() > 0);
+					assertTrue(user.enable());
+					assertNotNull(user.mobile());
+					assertNotNull(user.created());
+				}
+			} else {
+				fail("FETCH FAIL");
+			}
+
+			statement.setValue("enable", true);
+			if (statement.execute()) {
+				final User user = statement.first(User.class);
+				assertEquals(1, user.id());
+				assertEquals(size - 1, statement.stream(User.class).count());
+			} else {
+				fail("FETCH FAIL");
+			}
+		}
+	}
+
+	@Test
+	@Order(21)
+	void testMaterialize() {
+		final String SQL = "SELECT `id`,`mobile`,`enable`,`created` FROM `users` WHERE `enable`=?enable ORDER BY `id`";
+		try (Statement statement = Database.instance(SQL)) {
+			statement.setValue("enable", true);
+			if (statement.execute()) {
+				final Table table = statement.materialize();
+				assertTrue(table.size() > 0);
+				final Table.Cursor cursor = table.cursor();
+				long id = 0;
+				while (cursor.nextRecord()) {
+					assertTrue(cursor.getValue("id", 0L) > id);
+					id = cursor.getValue("id", 0L);
+					assertTrue(cursor.getValue("enable", false));
+					assertNotNull(cursor.getValue("mobile", (String) null));
+					assertNotNull(cursor.getValue("created", (LocalDateTime) null));
+				}
+				cursor.reset();
+				assertTrue(cursor.nextRecord());
+				assertEquals(1, cursor.getValue("id", 0L));
+			} else {
+				fail("MATERIALIZE FAIL");
+			}
+		}
+	}
+
+	@Test
+	@Order(22)
+	void testSelectIn() {
+		final String SQL = "SELECT * FROM `users` WHERE `enable`=?enable AND `id` IN (?ids)";
+		try (Statement statement = Database.instance(SQL)) {
+			statement.setValue("ids", List.of(1, 2, 3));
+			statement.setValue("enable", true);
+			if (statement.execute()) {
+				assertEquals(3, statement.fetch(User.class).size());
+			} else {
+				fail("SELECT IN FAIL");
+			}
+
+			statement.setValue("ids", new long[] { 10, 11, 12, 13, 14 });
+			statement.setValue("enable", true);
+			if (statement.execute()) {
+				assertEquals(5, statement.fetch(User.class).size());
+			} else {
+				fail("SELECT IN FAIL");
+			}
+
+			statement.setValue("ids", List.of());
+			statement.setValue("enable", true);
+			if (statement.execute()) {
+				assertEquals(0, statement.fetch(User.class).size());
+			} else {
+				fail("SELECT IN FAIL");
+			}
+
+			// 对象的集合属性展开
+			statement.setValues(new UserQuery(true, List.of(1L, 2L, 3L, 10L)));
+			if (statement.execute()) {
+				assertEquals(4, statement.fetch(User.class).size());
+			} else {
+				fail("SELECT IN FAIL");
+			}
+		}
+	}
+
+	record UserQuery(boolean enable, List<Long> ids) {
+	}
+
+	@Test
+	@Order(23)
+	void testLoader() throws Exception {
+		final Loader<User> loader = Database.loader("SELECT * FROM `users` WHERE `id` IN (?ids)", "ids", "id", User.class);
+		final List<CompletableFuture<User>> futures = new ArrayList<>();
+		for (int index = 10; index < 20; index++) {
+			futures.add(loader.load(index));
+		}
+		// 重复主键
+		assertSame(futures.get(0), loader.load(10));
+		// 不存在的主键
+		final CompletableFuture<User> none = loader.load(9999);
+
+		for (int index = 0; index < futures.size(); index++) {
+			assertEquals(index + 10, futures.get(index).get().id());
+		}
+		assertNull(none.get());
+
+		// DECIMAL 字段值(例如 Oracle NUMBER)与整数主键匹配
+		final Loader<User> decimals = Database.loader("SELECT CAST(`id` AS DECIMAL(20,0)) AS `key`,`users`.* FROM `users` WHERE `id` IN (?ids)", "ids", "key", User.class);
+		final CompletableFuture<User> decimal = decimals.load(10);
+		assertEquals(10, decimal.get().id());
+	}
+
 	@Test
 	@Order(30)
 	void testUpdate() {
@@ -531,6 +707,34 @@ class TestMySQL {
 		}
 	}
 
+	@Test
+	@Order(52)
+	void testWriter() throws Exception {
+		final Writer writer = Database.writer("INSERT INTO `energies` (`number`)VALUES(?number)");
+		final List<CompletableFuture<Integer>> futures = new ArrayList<>();
+		for (int index = 0; index < 1000; index++) {
+			final int number = index;
+			futures.add(writer.write(statement -> statement.setValue("number", number)));
+		}
+		writer.close();
+		for (CompletableFuture<Integer> future : futures) {
+			assertEquals(1, future.get());
+		}
+
+		// 写入任务执行期间陆续提交的记录不关闭也能在等待时间后写入
+		final Writer trickle = Database.writer("INSERT INTO `energies` (`number`)VALUES(?number)", 1000, 5, 10000);
+		futures.clear();
+		for (int index = 0; index < 200; index++) {
+			final int number = index;
+			futures.add(trickle.write(statement -> statement.setValue("number", number)));
+			Thread.sleep(1);
+		}
+		for (CompletableFuture<Integer> future : futures) {
+			assertEquals(1, future.get(5, TimeUnit.SECONDS));
+		}
+		trickle.close();
+	}
+
 	@Test
 	@Order(60)
 	void testProcedure() {
@@ -565,4 +769,202 @@ class TestMySQL {
 			}
 		}
 	}
+
+	@Test
+	@Order(65)
+	void testSharding() {
+		final String[] urls = new String[2];
+		for (int index = 0; index < urls.length; index++) {
+			try (Statement statement = Database.instance("CREATE DATABASE `joyzl-database-shard" + index + "`")) {
+				statement.execute();
+			}
+			urls[index] = HOST + "joyzl-database-shard" + index + PARAMETERS;
+		}
+		final Sharding sharding = Database.sharding(Database.MYSQL, "id", Sharding.hash(), urls, USER, PSWD, 2);
+		try {
+			// 建表在所有分片执行
+			try (Statement statement = sharding.broadcast("CREATE TABLE `users` (`id` BIGINT NOT NULL,`mobile` VARCHAR(16) NOT NULL,`name` VARCHAR(32) DEFAULT NULL,`enable` TINYINT(1) NOT NULL DEFAULT '1',`created` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,PRIMARY KEY (`id`))")) {
+				statement.execute();
+			}
+			// 没有分片键参数的写入语句不能在所有分片执行
+			assertThrows(IllegalArgumentException.class, () -> sharding.instance("INSERT INTO `users` (`mobile`)VALUES(?mobile)"));
+
+			// 按分片键选择分片，包括以对象属性设置参数
+			final String INSERT = "INSERT INTO `users` (`id`,`mobile`,`name`,`enable`)VALUES(?id,?mobile,?name,?enable)";
+			for (int index = 1; index <= 10; index++) {
+				try (Statement statement = sharding.instance(INSERT)) {
+					statement.setValues(new User(index, "0000000000" + index, "姓名" + index, true, null));
+					assertTrue(statement.execute());
+				}
+			}
+			try (Statement statement = sharding.instance(INSERT)) {
+				statement.batchAll(List.of(new User(12, "00000000012", "姓名12", true, null), new User(14, "00000000014", "姓名14", true, null)));
+				statement.execute();
+				assertEquals(2, statement.getUpdatedCount());
+			}
+			// 哈希分片按 id%2 选择分片，在所有分片执行的查询按分片顺序合并结果
+			try (Statement statement = sharding.instance("SELECT COUNT(*) AS `c` FROM `users`")) {
+				assertTrue(statement.execute());
+				assertTrue(statement.nextRecord());
+				assertEquals(7, statement.getValue("c", 0));
+				assertTrue(statement.nextRecord());
+				assertEquals(5, statement.getValue("c", 0));
+			}
+			try (Statement statement = sharding.instance("SELECT * FROM `users` WHERE `id`=?id")) {
+				statement.setValue("id", 3);
+				assertTrue(statement.execute());
+				assertEquals("姓名3", statement.first(User.class).name());
+			}
+			// WITH 查询在所有分片执行
+			try (Statement statement = sharding.instance("WITH `e` AS (SELECT * FROM `users` WHERE `enable`=?enable) SELECT COUNT(*) AS `c` FROM `e`")) {
+				statement.setValue("enable", true);
+				assertTrue(statement.execute());
+				int count = 0;
+				while (statement.nextRecord()) {
+					count += statement.getValue("c", 0);
+				}
+				assertEquals(12, count);
+			}
+			// 切换分片将丢失已设置的参数，分片键参数必须最先设置
+			try (Statement statement = sharding.instance("UPDATE `users` SET `name`=?name WHERE `id`=?id")) {
+				statement.setValue("id", 1);
+				statement.setValue("name", "姓名1");
+				assertThrows(IllegalStateException.class, () -> statement.setValue("id", 2));
+			}
+
+			// 在所有分片执行的批处理，影响行数为各分片之和
+			try (Statement statement = sharding.broadcast("UPDATE `users` SET `enable`=?enable WHERE `id`=?id")) {
+				for (int index = 1; index <= 4; index++) {
+					statement.setValue("id", index);
+					statement.setValue("enable", false);
+					statement.batch();
+				}
+				statement.execute();
+				assertEquals(4, statement.getUpdatedCount());
+				assertEquals(8, statement.getUpdatedBatchs().length);
+			}
+
+			// 在所有分片执行的查询，包括集合参数
+			try (Statement statement = sharding.instance("SELECT * FROM `users` WHERE `enable`=?enable AND `id` IN (?ids)")) {
+				statement.setValue("enable", true);
+				statement.setValue("ids", List.of(1L, 2L, 5L, 6L, 12L));
+				assertTrue(statement.execute());
+				assertEquals(3, statement.fetch(User.class).size());
+				assertEquals(-1, statement.getUpdatedCount());
+			}
+		} finally {
+			for (int index = 0; index < urls.length; index++) {
+				try (Statement statement = Database.instance("DROP DATABASE `joyzl-database-shard" + index + "`")) {
+					statement.execute();
+				}
+			}
+		}
+	}
+
+	@Test
+	@Order(70)
+	void testBreaker() {
+		// 无法连接的数据库
+		final Sharding sharding = Database.sharding(Database.MYSQL, "id", Sharding.hash(), new String[] { "jdbc:mysql://127.0.0.1:1/" }, "root", "", 1);
+		final Breaker breaker = sharding.getPools()[0].getBreaker();
+		breaker.setThreshold(3, 60 * 1000, 60 * 1000);
+		final List<Breaker.State> states = new ArrayList<>();
+		breaker.addListener((pool, from, to) -> states.add(to));
+
+		for (int index = 0; index < 3; index++) {
+			try (Statement statement = sharding.instance("SELECT * FROM `users` WHERE `id`=?id")) {
+				statement.setValue("id", 1);
+				fail();
+			} catch (UnavailableException e) {
+				fail();
+			} catch (RuntimeException e) {
+				// 连接失败
+			}
+		}
+		assertEquals(Breaker.State.OPEN, breaker.getState());
+		assertEquals(List.of(Breaker.State.OPEN), states);
+
+		// 熔断器打开后快速失败
+		try (Statement statement = sharding.instance("SELECT * FROM `users` WHERE `id`=?id")) {
+			assertThrows(UnavailableException.class, () -> statement.setValue("id", 1));
+		}
+		assertEquals(1, breaker.getTrips());
+		assertEquals(1, breaker.getRejected());
+	}
+
+	@Test
+	@Order(80)
+	void testInterceptor() {
+		final List<String> hooks = new ArrayList<>();
+		final Interceptor interceptor = new Interceptor() {
+			@Override
+			public String prepare(NamedSQL sql, String execute) {
+				return "/* test */ " + execute;
+			}
+
+			@Override
+			public void beforeAcquire(NamedSQL sql) {
+				hooks.add("beforeAcquire");
+			}
+
+			@Override
+			public void afterAcquire(NamedSQL sql, long nanos, Throwable error) {
+				hooks.add("afterAcquire");
+			}
+
+			@Override
+			public void beforeExecute(NamedSQL sql, Object[] parameters) {
+				hooks.add("beforeExecute " + List.of(parameters));
+			}
+
+			@Override
+			public void afterExecute(NamedSQL sql, Object[] parameters, long nanos, Throwable error) {
+				assertTrue(nanos > 0);
+				hooks.add("afterExecute");
+			}
+
+			@Override
+			public void beforeFlush(NamedSQL sql, int batches) {
+				hooks.add("beforeFlush " + batches);
+			}
+
+			@Override
+			public void afterFlush(NamedSQL sql, int batches, long nanos, Throwable error) {
+				hooks.add("afterFlush " + batches);
+			}
+
+			@Override
+			public void beforeClose(NamedSQL sql) {
+				hooks.add("beforeClose");
+			}
+
+			@Override
+			public void afterClose(NamedSQL sql, long nanos, Throwable error) {
+				hooks.add("afterClose");
+			}
+		};
+		Database.addInterceptor(interceptor);
+		try {
+			try (Statement statement = Database.instance("SELECT * FROM `users` WHERE `id`=?id AND `enable`=?enable")) {
+				statement.setValue("id", 1);
+				statement.setValue("enable", true);
+				assertTrue(statement.execute());
+			}
+			assertEquals(List.of("beforeAcquire", "afterAcquire", "beforeExecute [1, true]", "afterExecute", "beforeClose", "afterClose"), hooks);
+
+			hooks.clear();
+			try (Statement statement = Database.instance("UPDATE `users` SET `enable`=?enable WHERE `id`=?id")) {
+				for (int index = 1; index <= 3; index++) {
+					statement.setValue("id", index);
+					statement.setValue("enable", true);
+					statement.batch();
+				}
+				statement.execute();
+			}
+			assertEquals(List.of("beforeAcquire", "afterAcquire", "beforeFlush 3", "afterFlush 3", "beforeClose", "afterClose"), hooks);
+		} finally {
+			assertTrue(Database.removeInterceptor(interceptor));
+		}
+		assertTrue(Database.getInterceptors().isEmpty());
+	}
 }
@@ -4,6 +4,11 @@
  */
 package com.joyzl.database.test;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
@@ -11,9 +16,16 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import com.joyzl.database.NamedSQL;
+import com.joyzl.database.SQL;
 
 class TestNamedSQL {
 
+	record Item(long id, String name, boolean enable) {
+	}
+
+	@SQL(Item.class)
+	final static String UPDATE_ITEM = "UPDATE `items` SET `name`=?name, `enable`=?enable WHERE `id`=?id OR `parent`=?id";
+
 	@BeforeAll
 	static void setUpBeforeClass() throws Exception {
 	}
@@ -42,4 +54,39 @@ class TestNamedSQL {
 		System.out.println("\"" + namesSql.getExcuteSQL() + "\"");
 	}
 
+	@Test
+	void testExpand() {
+		assertEquals(1, NamedSQL.bucket(0));
+		assertEquals(1, NamedSQL.bucket(1));
+		assertEquals(2, NamedSQL.bucket(2));
+		assertEquals(4, NamedSQL.bucket(3));
+		assertEquals(8, NamedSQL.bucket(5));
+		assertEquals(512, NamedSQL.bucket(512));
+		assertEquals(1000, NamedSQL.bucket(513));
+		assertEquals(1000, NamedSQL.bucket(1000));
+		assertThrows(IllegalArgumentException.class, () -> NamedSQL.bucket(1001));
+
+		final String sql = "SELECT * FROM `users` WHERE `enable`=?enable AND `id` IN (?ids) OR `parent` IN (?ids)";
+		final NamedSQL base = NamedSQL.get(sql);
+		final NamedSQL variant = base.expand("ids", 4);
+		assertEquals("SELECT * FROM `users` WHERE `enable`=? AND `id` IN (?,?,?,?) OR `parent` IN (?,?,?,?)", variant.getExcuteSQL());
+		assertEquals(9, variant.getNames().length);
+		assertEquals("enable", variant.name(0));
+		assertEquals("ids", variant.name(8));
+		assertSame(variant, base.expand("ids", 4));
+		assertSame(variant, variant.expand("ids", 4));
+		assertSame(base, variant.expand("ids", 1));
+		assertSame(base, variant.getBase());
+		assertEquals(sql, variant.getNamedSQL());
+	}
+
+	@Test
+	void testPrecompiled() {
+		// 由注解处理器生成的 TestNamedSQLSQL 在编译期分析
+		final NamedSQL named = TestNamedSQLSQL.UPDATE_ITEM;
+		assertSame(named, NamedSQL.get(UPDATE_ITEM));
+		assertEquals("UPDATE `items` SET `name`=?, `enable`=? WHERE `id`=? OR `parent`=?", named.getExcuteSQL());
+		assertEquals("UPDATE", named.getSQLCommand());
+		assertArrayEquals(new String[] { "name", "enable", "id", "id" }, named.getNames());
+	}
 }